@@ -49,9 +49,11 @@ import cn.kk.forcedgraph.bean.EdgeData;
 import cn.kk.forcedgraph.bean.NodeData;
 import cn.kk.forcedgraph.graph.Graph;
 import cn.kk.forcedgraph.graph.Node;
-import cn.kk.forcedgraph.layout.GraphPanel;
 import cn.kk.forcedgraph.listener.GraphFinishedListener;
-import cn.kk.forcedgraph.listener.NodeSelectedListener;
+import cn.kk.forcedgraph.swing.EdgeStyle;
+import cn.kk.forcedgraph.swing.GraphPanel;
+import cn.kk.forcedgraph.swing.NodeSelectedListener;
+import cn.kk.forcedgraph.swing.NodeStyle;
 
 public class Main extends JFrame implements NodeSelectedListener, GraphFinishedListener {
     private final ArrayList<Node> nodes;
@@ -210,45 +212,40 @@ public class Main extends JFrame implements NodeSelectedListener, GraphFinishedL
     }
 
     public void addNode() {
-        (new Thread() {
-            @Override
-            public void run() {
-                synchronized (nodes) {
-                    final String label = NAMES[(int) (Math.random() * NAMES.length)];
-                    final Color labelColor = DARK_COLORS[(int) (Math.random() * DARK_COLORS.length)];
-                    final Color nodeColor = LIGHT_COLORS[(int) (Math.random() * LIGHT_COLORS.length)];
-                    final Color boxColor = nodeColor.darker();
-                    final double mass = Math.random() * 10 + 1;
-                    final Node node = panel.addNode(new NodeData().label(label).labelColor(labelColor)
-                            .backgroundColor(nodeColor).boxColor(boxColor).mass(mass));
+        synchronized (this.nodes) {
+            final String label = NAMES[(int) (Math.random() * NAMES.length)];
+            final Color labelColor = DARK_COLORS[(int) (Math.random() * DARK_COLORS.length)];
+            final Color nodeColor = LIGHT_COLORS[(int) (Math.random() * LIGHT_COLORS.length)];
+            final Color boxColor = nodeColor.darker();
+            final double mass = Math.random() * 10 + 1;
+            final Node node = this.panel.addNode(new NodeData().label(label).mass(mass)
+                    .style(new NodeStyle().labelColor(labelColor).backgroundColor(nodeColor).boxColor(boxColor)));
 
-                    final int size = nodes.size();
-                    if (size > 0) {
-                        final Color edgeColor = MEDIUM_COLORS[(int) (Math.random() * MEDIUM_COLORS.length)];
-                        final Color edgeLabelColor = edgeColor.darker();
-                        final int edges = (int) Math.round(Math.random() * Math.min(size, 20)) / 2;
-                        final float weight = (float) (Math.random() * 3 + 1);
-                        if (edges > 0) {
-                            for (int i = edges; i != 0; i--) {
-                                final Node otherNode = nodes.get((int) (Math.random() * size));
-                                final boolean directed = 0 != (int) (Math.random() * 5);
-                                final String edgeLabel;
-                                if (directed && 1 == Math.round(Math.random())) {
-                                    edgeLabel = EMOTIONAL_VERBS[(int) (Math.random() * EMOTIONAL_VERBS.length)];
-                                } else {
-                                    edgeLabel = null;
-                                }
-                                panel.addEdge(node, otherNode,
-                                        new EdgeData().color(edgeColor).labelColor(edgeLabelColor).weight(weight)
-                                                .directional(directed).label(edgeLabel));
-                            }
+            final int size = this.nodes.size();
+            if (size > 0) {
+                final Color edgeColor = MEDIUM_COLORS[(int) (Math.random() * MEDIUM_COLORS.length)];
+                final Color edgeLabelColor = edgeColor.darker();
+                final int edges = (int) Math.round(Math.random() * Math.min(size, 20)) / 2;
+                final float weight = (float) (Math.random() * 3 + 1);
+                if (edges > 0) {
+                    for (int i = edges; i != 0; i--) {
+                        final Node otherNode = this.nodes.get((int) (Math.random() * size));
+                        final boolean directed = 0 != (int) (Math.random() * 5);
+                        final String edgeLabel;
+                        if (directed && 1 == Math.round(Math.random())) {
+                            edgeLabel = EMOTIONAL_VERBS[(int) (Math.random() * EMOTIONAL_VERBS.length)];
+                        } else {
+                            edgeLabel = null;
                         }
+                        this.panel.addEdge(node, otherNode,
+                                new EdgeData().weight(weight).directional(directed).label(edgeLabel)
+                                        .style(new EdgeStyle().color(edgeColor).labelColor(edgeLabelColor)));
                     }
-                    nodes.add(node);
-                    lblCounter.setText("（顶点数目：" + nodes.size() + "）");
                 }
             }
-        }).start();
+            this.nodes.add(node);
+            this.lblCounter.setText("（顶点数目：" + this.nodes.size() + "）");
+        }
     }
 
     @Override
@@ -262,19 +259,14 @@ public class Main extends JFrame implements NodeSelectedListener, GraphFinishedL
     }
 
     public void removeNode(final Node node) {
-        (new Thread() {
-            @Override
-            public void run() {
-                synchronized (nodes) {
-                    if (node != null) {
-                        nodes.remove(node);
-                        panel.removeNode(node);
-                    }
-                    btnRemove.setEnabled(false);
-                    lblCounter.setText("（顶点数目：" + nodes.size() + "）");
-                }
+        synchronized (this.nodes) {
+            if (node != null) {
+                this.nodes.remove(node);
+                this.panel.removeNode(node);
             }
-        }).start();
+            this.btnRemove.setEnabled(false);
+            this.lblCounter.setText("（顶点数目：" + this.nodes.size() + "）");
+        }
     }
 
     public void reset() {
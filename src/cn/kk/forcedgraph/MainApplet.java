@@ -47,9 +47,11 @@ import cn.kk.forcedgraph.bean.EdgeData;
 import cn.kk.forcedgraph.bean.NodeData;
 import cn.kk.forcedgraph.graph.Graph;
 import cn.kk.forcedgraph.graph.Node;
-import cn.kk.forcedgraph.layout.GraphPanel;
 import cn.kk.forcedgraph.listener.GraphFinishedListener;
-import cn.kk.forcedgraph.listener.NodeSelectedListener;
+import cn.kk.forcedgraph.swing.EdgeStyle;
+import cn.kk.forcedgraph.swing.GraphPanel;
+import cn.kk.forcedgraph.swing.NodeSelectedListener;
+import cn.kk.forcedgraph.swing.NodeStyle;
 
 public class MainApplet extends Applet implements NodeSelectedListener, GraphFinishedListener {
     private static final long serialVersionUID = -987244165015580254L;
@@ -219,8 +221,8 @@ public class MainApplet extends Applet implements NodeSelectedListener, GraphFin
             final Color nodeColor = LIGHT_COLORS[(int) (Math.random() * LIGHT_COLORS.length)];
             final Color boxColor = nodeColor.darker();
             final double mass = Math.random() * 10 + 1;
-            final Node node = this.panel.addNode(new NodeData().label(label).labelColor(labelColor)
-                    .backgroundColor(nodeColor).boxColor(boxColor).mass(mass));
+            final Node node = this.panel.addNode(new NodeData().label(label).mass(mass)
+                    .style(new NodeStyle().labelColor(labelColor).backgroundColor(nodeColor).boxColor(boxColor)));
 
             final int size = this.nodes.size();
             if (size > 0) {
@@ -238,8 +240,8 @@ public class MainApplet extends Applet implements NodeSelectedListener, GraphFin
                         } else {
                             edgeLabel = null;
                         }
-                        this.panel.addEdge(node, otherNode, new EdgeData().color(edgeColor).labelColor(edgeLabelColor)
-                                .weight(weight).directional(directed).label(edgeLabel));
+                        this.panel.addEdge(node, otherNode, new EdgeData().weight(weight).directional(directed)
+                                .label(edgeLabel).style(new EdgeStyle().color(edgeColor).labelColor(edgeLabelColor)));
                     }
                 }
             }
@@ -20,44 +20,18 @@
  */
 package cn.kk.forcedgraph.bean;
 
-import java.awt.BasicStroke;
-import java.awt.Color;
-import java.awt.Font;
-import java.awt.Paint;
-import java.awt.Stroke;
-
-import cn.kk.forcedgraph.layout.GraphPanel;
-
 public class EdgeData {
-    public static final Stroke DEFAULT_STROKE = new BasicStroke(0.5f);
-    public static final Paint DEFAULT_PAINT = Color.BLACK;
-    public static final Font DEFAULT_FONT = GraphPanel.DEFAULT_LABEL_FONT.deriveFont(GraphPanel.DEFAULT_LABEL_FONT
-            .getSize2D() - 2f);
-    public static final Color DEFAULT_COLOR = new Color(0x007C23);
-    public static final Color DEFAULT_LABEL_COLOR = new Color(91, 166, 236);
-
     private double length = 1.0;
+    private double stiffness = 1.0;
     private float weight = 1.0f;
     private boolean directional = true;
-    private Stroke lineStroke = DEFAULT_STROKE;
     private String label;
-    private Font font = DEFAULT_FONT;
-    private Color color = DEFAULT_COLOR;
-    private Color labelColor = DEFAULT_LABEL_COLOR;
+    private Object style;
 
     public EdgeData() {
 
     }
 
-    /**
-     * @param color
-     *            the color to set
-     */
-    public final EdgeData color(Color color) {
-        this.color = color;
-        return this;
-    }
-
     /**
      * @param directional
      *            the directional to set
@@ -67,29 +41,6 @@ public class EdgeData {
         return this;
     }
 
-    /**
-     * @param font
-     *            the font to set
-     */
-    public EdgeData font(Font font) {
-        this.font = font;
-        return this;
-    }
-
-    /**
-     * @return the color
-     */
-    public final Color getColor() {
-        return color;
-    }
-
-    /**
-     * @return the font
-     */
-    public Font getFont() {
-        return font;
-    }
-
     /**
      * @return the label
      */
@@ -98,24 +49,24 @@ public class EdgeData {
     }
 
     /**
-     * @return the labelColor
+     * @return the length
      */
-    public Color getLabelColor() {
-        return labelColor;
+    public final double getLength() {
+        return length;
     }
 
     /**
-     * @return the length
+     * @return the factor the spring stiffness of the layout is multiplied with
      */
-    public final double getLength() {
-        return length;
+    public final double getStiffness() {
+        return this.stiffness;
     }
 
     /**
-     * @return the stroke
+     * @return the style, an opaque rendering hint the core never interprets
      */
-    public Stroke getLineStroke() {
-        return lineStroke;
+    public Object getStyle() {
+        return style;
     }
 
     /**
@@ -142,29 +93,29 @@ public class EdgeData {
     }
 
     /**
-     * @param labelColor
-     *            the labelColor to set
+     * @param length
+     *            the length to set
      */
-    public EdgeData labelColor(Color labelColor) {
-        this.labelColor = labelColor;
+    public final EdgeData length(double length) {
+        this.length = length;
         return this;
     }
 
     /**
-     * @param length
-     *            the length to set
+     * @param stiffness
+     *            the factor the spring stiffness of the layout is multiplied with
      */
-    public final EdgeData length(double length) {
-        this.length = length;
+    public final EdgeData stiffness(double stiffness) {
+        this.stiffness = stiffness;
         return this;
     }
 
     /**
-     * @param stroke
-     *            the stroke to set
+     * @param style
+     *            the style to set, e.g. an EdgeStyle of the Swing painter
      */
-    public EdgeData lineStroke(Stroke stroke) {
-        this.lineStroke = stroke;
+    public EdgeData style(Object style) {
+        this.style = style;
         return this;
     }
 
@@ -20,81 +20,15 @@
  */
 package cn.kk.forcedgraph.bean;
 
-import java.awt.BasicStroke;
-import java.awt.Color;
-import java.awt.Font;
-import java.awt.Stroke;
-
-import cn.kk.forcedgraph.layout.GraphPanel;
-
 public class NodeData {
-    public static final Stroke DEFAULT_STROKE = new BasicStroke(1.0f);
-    public static final Font DEFAULT_FONT = GraphPanel.DEFAULT_LABEL_FONT;
-    public static final Color DEFAULT_BG_COLOR = new Color(0xE8FFFB);
-    public static final Color DEFAULT_BOX_COLOR = DEFAULT_BG_COLOR.darker();
-    public static final Color DEFAULT_LABEL_COLOR = Color.BLACK;
-
-    private Font font = DEFAULT_FONT;
-    private Color bgColor = DEFAULT_BG_COLOR;
-    private Color boxColor = DEFAULT_BOX_COLOR;
-    private Color labelColor = DEFAULT_LABEL_COLOR;
-    private Stroke stroke = DEFAULT_STROKE;
-
     private double mass = 1.0;
     private String label;
+    private Object style;
 
     public NodeData() {
 
     }
 
-    /**
-     * @param color
-     *            the color to set
-     */
-    public final NodeData backgroundColor(Color color) {
-        this.bgColor = color;
-        return this;
-    }
-
-    /**
-     * @param boxColor
-     *            the boxColor to set
-     */
-    public final NodeData boxColor(Color boxColor) {
-        this.boxColor = boxColor;
-        return this;
-    }
-
-    /**
-     * @param font
-     *            the font to set
-     */
-    public final NodeData font(Font font) {
-        this.font = font;
-        return this;
-    }
-
-    /**
-     * @return the color
-     */
-    public final Color getBackgroundColor() {
-        return bgColor;
-    }
-
-    /**
-     * @return the boxColor
-     */
-    public final Color getBoxColor() {
-        return this.boxColor;
-    }
-
-    /**
-     * @return the font
-     */
-    public final Font getFont() {
-        return font;
-    }
-
     /**
      * @return the label
      */
@@ -102,13 +36,6 @@ public class NodeData {
         return label;
     }
 
-    /**
-     * @return the labelColor
-     */
-    public final Color getLabelColor() {
-        return labelColor;
-    }
-
     /**
      * @return the mass
      */
@@ -117,10 +44,10 @@ public class NodeData {
     }
 
     /**
-     * @return the stroke
+     * @return the style, an opaque rendering hint the core never interprets
      */
-    public final Stroke getStroke() {
-        return stroke;
+    public Object getStyle() {
+        return style;
     }
 
     /**
@@ -132,15 +59,6 @@ public class NodeData {
         return this;
     }
 
-    /**
-     * @param labelColor
-     *            the labelColor to set
-     */
-    public final NodeData labelColor(Color labelColor) {
-        this.labelColor = labelColor;
-        return this;
-    }
-
     /**
      * @param mass
      *            the mass to set
@@ -151,11 +69,11 @@ public class NodeData {
     }
 
     /**
-     * @param stroke
-     *            the stroke to set
+     * @param style
+     *            the style to set, e.g. a NodeStyle of the Swing painter
      */
-    public final NodeData stroke(Stroke stroke) {
-        this.stroke = stroke;
+    public NodeData style(Object style) {
+        this.style = style;
         return this;
     }
 }
@@ -0,0 +1,153 @@
+/*  Copyright (c) 2010 Xiaoyun Zhu
+ * 
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy  
+ *  of this software and associated documentation files (the "Software"), to deal  
+ *  in the Software without restriction, including without limitation the rights  
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell  
+ *  copies of the Software, and to permit persons to whom the Software is  
+ *  furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in  
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR  
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,  
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER  
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,  
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
+ *  THE SOFTWARE.  
+ */
+package cn.kk.forcedgraph.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+import cn.kk.forcedgraph.graph.Graph;
+import cn.kk.forcedgraph.layout.ForceDirectedLayout;
+import cn.kk.forcedgraph.layout.GraphRenderer;
+
+/**
+ * Checks that {@link ForceDirectedLayout#step(double, double)} and a whole {@link GraphRenderer#tick()} do not allocate
+ * once warmed up, by reading the bytes the thread allocated before and after a number of them:
+ * 
+ * <pre>
+ * java cn.kk.forcedgraph.benchmark.AllocationCheck -s tree,grid -n 1000 -w 2000 -i 200
+ * </pre>
+ * 
+ * Every shape is checked with and without Barnes-Hut. The tick covers the mutation drain, the step, the spatial index,
+ * the snapshot and the bounding box. Exits with status 1 if anything allocated, needs a JVM whose thread bean is a
+ * {@link com.sun.management.ThreadMXBean}.
+ * 
+ * @author x_kez
+ * 
+ */
+public final class AllocationCheck {
+    private static final String USAGE = "usage: AllocationCheck [-s tree|grid|scale_free|rmat|clustered|dense,..] "
+            + "[-n size] [-w warmup ticks] [-i measured ticks] [-seed seed]";
+
+    private Shape[] shapes = Shape.values();
+    private int size = 1000;
+    private int warmupTicks = 2000;
+    private int ticks = 200;
+    private long seed = 42L;
+
+    public static void main(final String[] args) {
+        final AllocationCheck check = new AllocationCheck();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                final String arg = args[i];
+                final String value = args[++i];
+                if ("-s".equals(arg)) {
+                    final String[] shapes = value.split(",");
+                    check.shapes = new Shape[shapes.length];
+                    for (int s = 0; s < shapes.length; s++) {
+                        check.shapes[s] = Shape.valueOf(shapes[s].toUpperCase(Locale.ENGLISH));
+                    }
+                } else if ("-n".equals(arg)) {
+                    check.size = Integer.parseInt(value);
+                } else if ("-w".equals(arg)) {
+                    check.warmupTicks = Integer.parseInt(value);
+                } else if ("-i".equals(arg)) {
+                    check.ticks = Integer.parseInt(value);
+                } else if ("-seed".equals(arg)) {
+                    check.seed = Long.parseLong(value);
+                } else {
+                    throw new IllegalArgumentException(arg);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        if (!check.run()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs a fresh layout of the shape until warm, then measures the bytes allocated by the following steps or ticks.
+     * 
+     * @return bytes allocated by the measured steps or ticks
+     */
+    private final long measure(final com.sun.management.ThreadMXBean threads, final Shape shape,
+            final boolean barnesHut, final boolean tick) {
+        final Graph graph = shape.build(this.size, this.seed);
+        final ForceDirectedLayout layout = new ForceDirectedLayout(graph);
+        layout.setBarnesHut(barnesHut);
+        final GraphRenderer renderer = new GraphRenderer(layout, 0L, null, null, layout.getBoundingBox());
+        // one step per tick, independent of the machine
+        renderer.setFrameBudget(0L);
+        try {
+            for (int i = 0; i < this.warmupTicks; i++) {
+                advance(layout, renderer, tick);
+            }
+            final long thread = Thread.currentThread().getId();
+            final long before = threads.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < this.ticks; i++) {
+                advance(layout, renderer, tick);
+            }
+            return threads.getThreadAllocatedBytes(thread) - before;
+        } finally {
+            layout.close();
+        }
+    }
+
+    private static final void advance(final ForceDirectedLayout layout, final GraphRenderer renderer,
+            final boolean tick) {
+        if (tick) {
+            renderer.tick();
+        } else {
+            layout.step(0.03, 0.03);
+        }
+    }
+
+    /**
+     * @return true if no step and no tick allocated
+     */
+    public final boolean run() {
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        threads.setThreadAllocatedMemoryEnabled(true);
+        // reading the counter must not count itself
+        final long thread = Thread.currentThread().getId();
+        final long start = threads.getThreadAllocatedBytes(thread);
+        final long overhead = threads.getThreadAllocatedBytes(thread) - start;
+        boolean passed = true;
+        for (Shape shape : this.shapes) {
+            for (int bh = 0; bh < 2; bh++) {
+                for (int t = 0; t < 2; t++) {
+                    final boolean barnesHut = bh == 1;
+                    final boolean tick = t == 1;
+                    final long bytes = measure(threads, shape, barnesHut, tick) - overhead;
+                    System.out.println(String.format(Locale.ENGLISH, "%-6s %-10s %6d nodes%s: %d bytes in %d %s",
+                            bytes == 0L ? "OK" : "FAILED", shape.name().toLowerCase(Locale.ENGLISH),
+                            Integer.valueOf(this.size), barnesHut ? ", Barnes-Hut" : "", Long.valueOf(bytes),
+                            Integer.valueOf(this.ticks), tick ? "ticks" : "steps"));
+                    passed &= bytes == 0L;
+                }
+            }
+        }
+        return passed;
+    }
+}
@@ -0,0 +1,63 @@
+/*  Copyright (c) 2010 Xiaoyun Zhu
+ * 
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy  
+ *  of this software and associated documentation files (the "Software"), to deal  
+ *  in the Software without restriction, including without limitation the rights  
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell  
+ *  copies of the Software, and to permit persons to whom the Software is  
+ *  furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in  
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR  
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,  
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER  
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,  
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
+ *  THE SOFTWARE.  
+ */
+package cn.kk.forcedgraph.benchmark;
+
+import cn.kk.forcedgraph.graph.Graph;
+
+/**
+ * One measured operation of {@link BenchmarkRunner}. Set up once per graph, then run repeatedly.
+ * 
+ * @author x_kez
+ * 
+ */
+public abstract class Benchmark {
+    private final String name;
+
+    public Benchmark(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the name
+     */
+    public final String getName() {
+        return this.name;
+    }
+
+    /**
+     * Runs the operation once.
+     * 
+     * @return a value depending on the work done, consumed by the runner so that it cannot be optimised away
+     */
+    public abstract double run();
+
+    /**
+     * Prepares the state the operation works on, outside of the measurement.
+     */
+    public abstract void setUp(Graph graph, long seed);
+
+    /**
+     * Releases what setUp acquired.
+     */
+    public void tearDown() {
+        // nothing to release by default
+    }
+}
@@ -0,0 +1,226 @@
+/*  Copyright (c) 2010 Xiaoyun Zhu
+ * 
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy  
+ *  of this software and associated documentation files (the "Software"), to deal  
+ *  in the Software without restriction, including without limitation the rights  
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell  
+ *  copies of the Software, and to permit persons to whom the Software is  
+ *  furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in  
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR  
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,  
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER  
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,  
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
+ *  THE SOFTWARE.  
+ */
+package cn.kk.forcedgraph.benchmark;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import cn.kk.forcedgraph.graph.Graph;
+
+/**
+ * Runs the {@link Benchmarks} on every shape and size and prints one JSON object per line, so that results can be
+ * appended to a file and compared across releases:
+ * 
+ * <pre>
+ * java cn.kk.forcedgraph.benchmark.BenchmarkRunner -b coulombsLaw,paintFrame -s tree,grid -n 1000,10000 -o results.jsonl
+ * </pre>
+ * 
+ * Each benchmark is warmed up first, then timed for a number of iterations of fixed duration. The score is the mean
+ * time of one operation over the iterations.
+ * 
+ * @author x_kez
+ * 
+ */
+public final class BenchmarkRunner {
+    private static final String USAGE = "usage: BenchmarkRunner [-b benchmark,..] "
+            + "[-s tree|grid|scale_free|rmat|clustered|dense,..] [-n size,..] [-w warmup iterations] "
+            + "[-i iterations] [-t iteration ms] [-seed seed] [-r revision] [-o file to append to]";
+
+    private List<String> benchmarks;
+    private List<Shape> shapes = Arrays.asList(Shape.values());
+    private int[] sizes = { 100, 1000, 10000 };
+    private int warmupIterations = 3;
+    private int iterations = 5;
+    private long iterationTime = 500L;
+    private long seed = 42L;
+    private String revision;
+    // keeps the results of the operations alive, so the JIT cannot drop them
+    private double sink;
+
+    public static void main(final String[] args) throws IOException {
+        final BenchmarkRunner runner = new BenchmarkRunner();
+        String output = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                final String arg = args[i];
+                final String value = args[++i];
+                if ("-b".equals(arg)) {
+                    runner.benchmarks = Arrays.asList(value.split(","));
+                } else if ("-s".equals(arg)) {
+                    final List<Shape> shapes = new ArrayList<Shape>();
+                    for (String shape : value.split(",")) {
+                        shapes.add(Shape.valueOf(shape.toUpperCase(Locale.ENGLISH)));
+                    }
+                    runner.shapes = shapes;
+                } else if ("-n".equals(arg)) {
+                    final String[] sizes = value.split(",");
+                    runner.sizes = new int[sizes.length];
+                    for (int s = 0; s < sizes.length; s++) {
+                        runner.sizes[s] = Integer.parseInt(sizes[s]);
+                    }
+                } else if ("-w".equals(arg)) {
+                    runner.warmupIterations = Integer.parseInt(value);
+                } else if ("-i".equals(arg)) {
+                    runner.iterations = Integer.parseInt(value);
+                } else if ("-t".equals(arg)) {
+                    runner.iterationTime = Long.parseLong(value);
+                } else if ("-seed".equals(arg)) {
+                    runner.seed = Long.parseLong(value);
+                } else if ("-r".equals(arg)) {
+                    runner.revision = value;
+                } else if ("-o".equals(arg)) {
+                    output = value;
+                } else {
+                    throw new IllegalArgumentException(arg);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println(USAGE);
+            return;
+        }
+        final PrintWriter out;
+        if (output == null) {
+            out = new PrintWriter(new OutputStreamWriter(System.out, "UTF-8"), true);
+        } else {
+            out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(output, true), "UTF-8"), true);
+        }
+        try {
+            runner.run(out);
+        } finally {
+            out.flush();
+            if (output != null) {
+                out.close();
+            }
+        }
+    }
+
+    private static final String quote(final String value) {
+        final StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < ' ') {
+                sb.append(String.format("\\u%04x", Integer.valueOf(c)));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Runs the operation for one iteration.
+     * 
+     * @return nanoseconds per operation
+     */
+    private final double iterate(final Benchmark benchmark) {
+        final long start = System.nanoTime();
+        final long end = start + this.iterationTime * 1000000L;
+        long operations = 0;
+        long now;
+        do {
+            this.sink += benchmark.run();
+            operations++;
+            now = System.nanoTime();
+        } while (now < end);
+        return (now - start) / (double) operations;
+    }
+
+    /**
+     * Measures one benchmark on one graph.
+     * 
+     * @return the result as a line of JSON
+     */
+    private final String measure(final Benchmark benchmark, final Shape shape, final int size) {
+        final Graph graph = shape.build(size, this.seed);
+        final int nodes = graph.getNodes().size();
+        final int edges = graph.getEdges().size();
+        benchmark.setUp(graph, this.seed);
+        final double[] scores = new double[this.iterations];
+        try {
+            for (int i = 0; i < this.warmupIterations; i++) {
+                iterate(benchmark);
+            }
+            for (int i = 0; i < this.iterations; i++) {
+                scores[i] = iterate(benchmark);
+            }
+        } finally {
+            benchmark.tearDown();
+        }
+        double mean = 0d;
+        double min = Double.POSITIVE_INFINITY;
+        double max = 0d;
+        for (double score : scores) {
+            mean += score / scores.length;
+            min = Math.min(min, score);
+            max = Math.max(max, score);
+        }
+        double variance = 0d;
+        for (double score : scores) {
+            variance += (score - mean) * (score - mean) / Math.max(1, scores.length - 1);
+        }
+        final StringBuilder sb = new StringBuilder();
+        sb.append("{\"benchmark\":").append(quote(benchmark.getName()));
+        sb.append(",\"shape\":").append(quote(shape.name().toLowerCase(Locale.ENGLISH)));
+        sb.append(",\"size\":").append(size);
+        sb.append(",\"nodes\":").append(nodes);
+        sb.append(",\"edges\":").append(edges);
+        sb.append(",\"unit\":\"ns/op\"");
+        sb.append(",\"score\":").append(String.format(Locale.ENGLISH, "%.3f", Double.valueOf(mean)));
+        sb.append(",\"stdev\":").append(String.format(Locale.ENGLISH, "%.3f", Double.valueOf(Math.sqrt(variance))));
+        sb.append(",\"min\":").append(String.format(Locale.ENGLISH, "%.3f", Double.valueOf(min)));
+        sb.append(",\"max\":").append(String.format(Locale.ENGLISH, "%.3f", Double.valueOf(max)));
+        sb.append(",\"iterations\":").append(this.iterations);
+        sb.append(",\"iterationTime\":").append(this.iterationTime);
+        sb.append(",\"seed\":").append(this.seed);
+        if (this.revision != null) {
+            sb.append(",\"revision\":").append(quote(this.revision));
+        }
+        sb.append(",\"java\":").append(quote(System.getProperty("java.version")));
+        sb.append(",\"processors\":").append(Runtime.getRuntime().availableProcessors());
+        sb.append(",\"timestamp\":").append(System.currentTimeMillis());
+        sb.append('}');
+        return sb.toString();
+    }
+
+    public final void run(final PrintWriter out) {
+        for (Shape shape : this.shapes) {
+            for (int size : this.sizes) {
+                for (Benchmark benchmark : Benchmarks.all()) {
+                    if (this.benchmarks == null || this.benchmarks.contains(benchmark.getName())) {
+                        out.println(measure(benchmark, shape, size));
+                    }
+                }
+            }
+        }
+        if (this.sink == 42d) {
+            // never true in practice, makes the sink observable
+            out.println();
+        }
+    }
+}
@@ -0,0 +1,311 @@
+/*  Copyright (c) 2010 Xiaoyun Zhu
+ * 
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy  
+ *  of this software and associated documentation files (the "Software"), to deal  
+ *  in the Software without restriction, including without limitation the rights  
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell  
+ *  copies of the Software, and to permit persons to whom the Software is  
+ *  furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in  
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR  
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,  
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER  
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,  
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
+ *  THE SOFTWARE.  
+ */
+package cn.kk.forcedgraph.benchmark;
+
+import java.awt.Graphics2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import cn.kk.forcedgraph.callback.EdgeCallback;
+import cn.kk.forcedgraph.callback.NodeCallback;
+import cn.kk.forcedgraph.graph.BoundingBox;
+import cn.kk.forcedgraph.graph.Edge;
+import cn.kk.forcedgraph.graph.Graph;
+import cn.kk.forcedgraph.graph.Node;
+import cn.kk.forcedgraph.graph.Point;
+import cn.kk.forcedgraph.graph.PointStore;
+import cn.kk.forcedgraph.graph.Spring;
+import cn.kk.forcedgraph.graph.Vector;
+import cn.kk.forcedgraph.layout.DistanceResult;
+import cn.kk.forcedgraph.layout.ForceDirectedLayout;
+import cn.kk.forcedgraph.layout.GraphRenderer;
+import cn.kk.forcedgraph.swing.GraphPanel;
+import cn.kk.forcedgraph.swing.PainterBase;
+import cn.kk.forcedgraph.swing.PainterImpl;
+import cn.kk.forcedgraph.swing.Renderer;
+
+/**
+ * The benchmarks of the layout and painting hot paths.
+ * 
+ * @author x_kez
+ * 
+ */
+public final class Benchmarks {
+    // size of the offscreen image painted into
+    private static final int WIDTH = 1024;
+    private static final int HEIGHT = 768;
+
+    /**
+     * Layout and painting state shared by the benchmarks, positions are spread over a square growing with the graph.
+     */
+    private static abstract class LayoutBenchmark extends Benchmark {
+        protected ForceDirectedLayout layout;
+        protected Random random;
+
+        LayoutBenchmark(final String name) {
+            super(name);
+        }
+
+        @Override
+        public void setUp(final Graph graph, final long seed) {
+            this.layout = new ForceDirectedLayout(graph);
+            this.random = new Random(seed);
+            // in id order, the order of the points depends on hashing
+            final Node[] nodes = graph.getNodes().toArray(new Node[0]);
+            Arrays.sort(nodes, new Comparator<Node>() {
+                @Override
+                public int compare(final Node n1, final Node n2) {
+                    return n1.getId() - n2.getId();
+                }
+            });
+            final PointStore points = this.layout.getPoints();
+            final double side = Math.sqrt(nodes.length) * 2d;
+            for (Node node : nodes) {
+                final int i = this.layout.getPoint(node).getIndex();
+                points.getX()[i] = (this.random.nextDouble() - 0.5) * side;
+                points.getY()[i] = (this.random.nextDouble() - 0.5) * side;
+            }
+            this.layout.updateSpatialIndex();
+        }
+
+        @Override
+        public void tearDown() {
+            this.layout.close();
+            this.layout = null;
+        }
+    }
+
+    private static abstract class PaintBenchmark extends LayoutBenchmark implements EdgeCallback, NodeCallback {
+        protected GraphPanel panel;
+        protected PainterBase painter;
+        protected Graphics2D g;
+
+        PaintBenchmark(final String name) {
+            super(name);
+        }
+
+        @Override
+        public void call(final Edge edge, final Spring spring) {
+            this.painter.drawEdge(this.g, this.panel, this.layout.getGraph(), edge,
+                    this.panel.toScreen(spring.getPoint1().getPosition()),
+                    this.panel.toScreen(spring.getPoint2().getPosition()));
+        }
+
+        @Override
+        public void call(final Node node, final Point point) {
+            this.painter.drawNode(this.g, this.panel, node, this.panel.toScreen(point.getPosition()));
+        }
+
+        @Override
+        public double run() {
+            this.g = this.painter.getGraphics();
+            paint();
+            this.painter.disposeGraphics();
+            return this.painter.getWidth();
+        }
+
+        abstract void paint();
+
+        @Override
+        public void setUp(final Graph graph, final long seed) {
+            super.setUp(graph, seed);
+            this.panel = new GraphPanel(this.layout, WIDTH, HEIGHT);
+            this.painter = this.panel.getPainter();
+        }
+    }
+
+    /**
+     * @return all benchmarks, freshly created
+     */
+    public static List<Benchmark> all() {
+        final List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+        benchmarks.add(new LayoutBenchmark("coulombsLaw") {
+            @Override
+            public double run() {
+                this.layout.applyCoulombsLaw();
+                return resetForces(this.layout.getPoints());
+            }
+        });
+        benchmarks.add(new LayoutBenchmark("coulombsLawBarnesHut") {
+            @Override
+            public double run() {
+                this.layout.applyCoulombsLaw();
+                return resetForces(this.layout.getPoints());
+            }
+
+            @Override
+            public void setUp(final Graph graph, final long seed) {
+                super.setUp(graph, seed);
+                this.layout.setBarnesHut(true);
+            }
+        });
+        benchmarks.add(new LayoutBenchmark("hookesLaw") {
+            @Override
+            public double run() {
+                this.layout.applyHookesLaw();
+                return resetForces(this.layout.getPoints());
+            }
+        });
+        benchmarks.add(new LayoutBenchmark("boundingBox") {
+            private final BoundingBox bb = new BoundingBox(new Vector(0d, 0d), new Vector(0d, 0d));
+
+            @Override
+            public double run() {
+                return this.layout.getBoundingBox(this.bb).getTopRight().getX();
+            }
+        });
+        benchmarks.add(new LayoutBenchmark("nearest") {
+            private final Vector position = new Vector(0d, 0d);
+            private double side;
+
+            @Override
+            public double run() {
+                this.position.setX((this.random.nextDouble() - 0.5) * this.side);
+                this.position.setY((this.random.nextDouble() - 0.5) * this.side);
+                final DistanceResult result = this.layout.nearest(this.position);
+                return result == null ? 0d : result.getDistance();
+            }
+
+            @Override
+            public void setUp(final Graph graph, final long seed) {
+                super.setUp(graph, seed);
+                this.side = Math.sqrt(this.layout.getPoints().size()) * 2d;
+            }
+        });
+        benchmarks.add(new LayoutBenchmark("removeEdge") {
+            private Edge[] edges;
+
+            /**
+             * Removes a random edge and puts a new one between the same nodes back, both through the layout.
+             */
+            @Override
+            public double run() {
+                if (this.edges.length == 0) {
+                    return 0d;
+                }
+                final int i = this.random.nextInt(this.edges.length);
+                final Edge edge = this.edges[i];
+                this.layout.removeEdge(edge);
+                this.edges[i] = this.layout.addEdge(edge.getSource(), edge.getTarget(), edge.getData());
+                return this.edges[i].getId();
+            }
+
+            @Override
+            public void setUp(final Graph graph, final long seed) {
+                super.setUp(graph, seed);
+                this.edges = graph.getEdges().toArray(new Edge[0]);
+                Arrays.sort(this.edges, new Comparator<Edge>() {
+                    @Override
+                    public int compare(final Edge e1, final Edge e2) {
+                        return e1.getId() - e2.getId();
+                    }
+                });
+            }
+        });
+        benchmarks.add(new LayoutBenchmark("rendererTick") {
+            private GraphRenderer renderer;
+
+            @Override
+            public double run() {
+                this.renderer.tick();
+                return this.layout.getTotalEnergy();
+            }
+
+            @Override
+            public void setUp(final Graph graph, final long seed) {
+                super.setUp(graph, seed);
+                this.layout.setBarnesHut(true);
+                this.renderer = new GraphRenderer(this.layout, 0L, null, null, this.layout.getBoundingBox());
+                // one step per tick, independent of the machine
+                this.renderer.setFrameBudget(0L);
+            }
+        });
+        benchmarks.add(new PaintBenchmark("drawEdge") {
+            @Override
+            void paint() {
+                this.layout.eachEdge(this);
+            }
+        });
+        benchmarks.add(new PaintBenchmark("drawNode") {
+            @Override
+            void paint() {
+                this.layout.eachNode(this);
+            }
+        });
+        benchmarks.add(new PaintBenchmark("drawNodeSprites") {
+            @Override
+            void paint() {
+                this.layout.eachNode(this);
+            }
+
+            @Override
+            public void setUp(final Graph graph, final long seed) {
+                super.setUp(graph, seed);
+                ((PainterImpl) this.painter).setNodeSprites(true);
+            }
+        });
+        benchmarks.add(new PaintBenchmark("paintFrame") {
+            @Override
+            void paint() {
+                this.painter.clear(this.g);
+                this.layout.eachEdge(this);
+                this.layout.eachNode(this);
+            }
+        });
+        benchmarks.add(new PaintBenchmark("paintSnapshot") {
+            private Renderer renderer;
+
+            /**
+             * Paints a frame the way the panel does, culled and with the level of detail of the zoom.
+             */
+            @Override
+            public double run() {
+                this.renderer.paintFrame();
+                return this.painter.getWidth();
+            }
+
+            @Override
+            void paint() {
+            }
+
+            @Override
+            public void setUp(final Graph graph, final long seed) {
+                super.setUp(graph, seed);
+                this.layout.publishSnapshot();
+                this.renderer = new Renderer(this.panel, 0L, this.layout);
+            }
+        });
+        return benchmarks;
+    }
+
+    private static final double resetForces(final PointStore points) {
+        final double result = points.getFx()[0];
+        Arrays.fill(points.getFx(), 0, points.size(), 0d);
+        Arrays.fill(points.getFy(), 0, points.size(), 0d);
+        return result;
+    }
+
+    private Benchmarks() {
+    }
+}
@@ -0,0 +1,84 @@
+/*  Copyright (c) 2010 Xiaoyun Zhu
+ * 
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy  
+ *  of this software and associated documentation files (the "Software"), to deal  
+ *  in the Software without restriction, including without limitation the rights  
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell  
+ *  copies of the Software, and to permit persons to whom the Software is  
+ *  furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in  
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR  
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,  
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER  
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,  
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
+ *  THE SOFTWARE.  
+ */
+package cn.kk.forcedgraph.benchmark;
+
+import cn.kk.forcedgraph.graph.Graph;
+import cn.kk.forcedgraph.graph.GraphGenerators;
+
+/**
+ * Graph topologies the benchmarks run on, built by {@link GraphGenerators} from a seed so runs are comparable.
+ * 
+ * @author x_kez
+ * 
+ */
+public enum Shape {
+    /** random recursive tree, every node hangs off an earlier one */
+    TREE {
+        @Override
+        public Graph build(final int size, final long seed) {
+            return GraphGenerators.randomTree(new Graph(size, size), size, seed);
+        }
+    },
+    /** square lattice */
+    GRID {
+        @Override
+        public Graph build(final int size, final long seed) {
+            final int side = (int) Math.ceil(Math.sqrt(size));
+            return GraphGenerators.grid(new Graph(size, 2 * size), side, (size + side - 1) / side, false);
+        }
+    },
+    /** preferential attachment, two edges per new node */
+    SCALE_FREE {
+        @Override
+        public Graph build(final int size, final long seed) {
+            return GraphGenerators.barabasiAlbert(new Graph(size, 2 * size), size, 2, seed);
+        }
+    },
+    /** R-MAT with the Graph500 parameters and eight edges per node, the size rounded up to a power of two */
+    RMAT {
+        @Override
+        public Graph build(final int size, final long seed) {
+            final int scale = 32 - Integer.numberOfLeadingZeros(Math.max(1, size - 1));
+            return GraphGenerators.rmat(new Graph(1 << scale, 8 << scale), scale, 8, seed);
+        }
+    },
+    /** clusters of 50 nodes, dense inside and about one edge per node across */
+    CLUSTERED {
+        @Override
+        public Graph build(final int size, final long seed) {
+            final int clusters = Math.max(1, size / 50);
+            return GraphGenerators.clustered(new Graph(size, 6 * size), clusters, 50, 0.2, 1d / size, seed);
+        }
+    },
+    /** random pairs up to an average degree of 20 */
+    DENSE {
+        @Override
+        public Graph build(final int size, final long seed) {
+            final double probability = Math.min(1d, 20d / Math.max(1, size - 1));
+            return GraphGenerators.erdosRenyi(new Graph(size, 10 * size), size, probability, seed);
+        }
+    };
+
+    /**
+     * @return a new graph of this shape with about the given number of nodes
+     */
+    public abstract Graph build(int size, long seed);
+}
@@ -0,0 +1,108 @@
+/*  Copyright (c) 2010 Xiaoyun Zhu
+ * 
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy  
+ *  of this software and associated documentation files (the "Software"), to deal  
+ *  in the Software without restriction, including without limitation the rights  
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell  
+ *  copies of the Software, and to permit persons to whom the Software is  
+ *  furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in  
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR  
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,  
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER  
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,  
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
+ *  THE SOFTWARE.  
+ */
+package cn.kk.forcedgraph.benchmark;
+
+import cn.kk.forcedgraph.bean.NodeData;
+import cn.kk.forcedgraph.graph.BoundingBox;
+import cn.kk.forcedgraph.graph.Graph;
+import cn.kk.forcedgraph.graph.Node;
+import cn.kk.forcedgraph.graph.Point;
+import cn.kk.forcedgraph.graph.PointStore;
+import cn.kk.forcedgraph.layout.ForceDirectedLayout;
+
+/**
+ * Checks that sleeping points wake up when an unconnected point drives into them: a grid settles until all its points
+ * sleep, then a new node without edges is pushed through the middle of it.
+ * 
+ * <pre>
+ * java cn.kk.forcedgraph.benchmark.WakeCheck
+ * </pre>
+ * 
+ * Exits with status 1 if the grid does not fall asleep or no point of it wakes up.
+ * 
+ * @author x_kez
+ * 
+ */
+public final class WakeCheck {
+    private static final int SIZE = 100;
+    private static final int MAX_STEPS = 20000;
+    // velocity the intruder is kept at
+    private static final double SPEED = 50.0;
+
+    public static void main(final String[] args) {
+        if (!run()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return true if the grid fell asleep and the intruder woke it
+     */
+    public static final boolean run() {
+        final Graph graph = Shape.GRID.build(SIZE, 42L);
+        final ForceDirectedLayout layout = new ForceDirectedLayout(graph);
+        try {
+            layout.setSleepEnabled(true);
+            final PointStore points = layout.getPoints();
+            int steps = 0;
+            while (sleepers(points) < points.size() && steps++ < MAX_STEPS) {
+                layout.step(0.03, 0.03);
+            }
+            if (sleepers(points) < points.size()) {
+                System.out.println("FAILED grid did not fall asleep in " + MAX_STEPS + " steps");
+                return false;
+            }
+            final BoundingBox bb = layout.getBoundingBox();
+            final double left = bb.getBottomLeft().getX();
+            final double right = bb.getTopRight().getX();
+            final double middle = (bb.getBottomLeft().getY() + bb.getTopRight().getY()) / 2d;
+            final Node intruder = layout.addNode(new NodeData());
+            final Point point = layout.getPoint(intruder);
+            point.setPosition(left - 5d, middle);
+            final int asleep = points.size() - 1;
+            for (steps = 0; point.getX() < right + 5d && steps < MAX_STEPS; steps++) {
+                points.getVx()[point.getIndex()] = SPEED;
+                points.getVy()[point.getIndex()] = 0d;
+                layout.step(0.03, 0.03);
+            }
+            final int woken = asleep - sleepers(points);
+            System.out.println((woken > 0 ? "OK" : "FAILED") + " " + woken + " of " + asleep
+                    + " sleeping points woke up");
+            return woken > 0;
+        } finally {
+            layout.close();
+        }
+    }
+
+    private static final int sleepers(final PointStore points) {
+        int count = 0;
+        for (int i = 0; i < points.size(); i++) {
+            if (points.getSleeping()[i]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private WakeCheck() {
+
+    }
+}
@@ -20,59 +20,89 @@
  */
 package cn.kk.forcedgraph.graph;
 
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import cn.kk.forcedgraph.bean.EdgeData;
 import cn.kk.forcedgraph.bean.NodeData;
 import cn.kk.forcedgraph.filter.EdgeFilter;
 import cn.kk.forcedgraph.filter.NodeFilter;
+import cn.kk.forcedgraph.listener.EdgeAddedListener;
 import cn.kk.forcedgraph.listener.EdgeRemovedListener;
 import cn.kk.forcedgraph.listener.GraphChangedListener;
+import cn.kk.forcedgraph.listener.GraphDeltaListener;
+import cn.kk.forcedgraph.listener.NodeAddedListener;
 import cn.kk.forcedgraph.listener.NodeRemovedListener;
 
 public final class Graph {
     private static final List<Edge> EMPTY_EDGES = Collections.emptyList();
+    private static final Set<Edge> EMPTY_EDGE_SET = Collections.emptySet();
     private final Set<Node> nodes;
     private final Set<Edge> edges;
+    // source -> target -> edges
     private final Map<Node, Map<Node, List<Edge>>> adjacency;
+    // target -> source -> edges
+    private final Map<Node, Map<Node, List<Edge>>> reverseAdjacency;
+    // incident edges per node
+    private final Map<Node, Set<Edge>> outEdges;
+    private final Map<Node, Set<Edge>> inEdges;
     private final List<GraphChangedListener> eventListeners;
+    private final List<GraphDeltaListener> deltaListeners;
+    // changes not yet delivered to the delta listeners, only recorded while there are any
+    private GraphDelta delta;
+    private NodeAddedListener nodeAddedListener;
     private NodeRemovedListener nodeRemovedListener;
+    private EdgeAddedListener edgeAddedListener;
     private EdgeRemovedListener edgeRemovedListener;
 
-    private int nextNodeId;
-    private int nextEdgeId;
+    // ids are handed out from any thread, nodes and edges may be created ahead of adding them
+    private final AtomicInteger nextNodeId = new AtomicInteger();
+    private final AtomicInteger nextEdgeId = new AtomicInteger();
+
+    // nesting depth of open batches and whether they changed anything
+    private int batchDepth;
+    private boolean batchChanged;
 
     public Graph() {
+        this(0, 0);
+    }
+
+    /**
+     * Sizes the graph for the expected number of nodes and edges, saves rehashing while bulk loading.
+     */
+    public Graph(final int expectedNodes, final int expectedEdges) {
+        final int nodeCapacity = capacity(expectedNodes);
         this.eventListeners = new LinkedList<GraphChangedListener>();
-        this.nodes = new HashSet<Node>();
-        this.edges = new HashSet<Edge>();
-        this.adjacency = new HashMap<Node, Map<Node, List<Edge>>>();
+        this.deltaListeners = new LinkedList<GraphDeltaListener>();
+        this.nodes = new HashSet<Node>(nodeCapacity);
+        this.edges = new HashSet<Edge>(capacity(expectedEdges));
+        this.adjacency = new HashMap<Node, Map<Node, List<Edge>>>(nodeCapacity);
+        this.reverseAdjacency = new HashMap<Node, Map<Node, List<Edge>>>(nodeCapacity);
+        this.outEdges = new HashMap<Node, Set<Edge>>(nodeCapacity);
+        this.inEdges = new HashMap<Node, Set<Edge>>(nodeCapacity);
     }
 
     public Edge addEdge(final Edge edge) {
         if (this.edges.add(edge)) {
             final Node src = edge.getSource();
             final Node tgt = edge.getTarget();
-            if (this.nodes.containsAll(Arrays.asList(src, tgt))) {
-                Map<Node, List<Edge>> srcAdjacency = this.adjacency.get(src);
-                if (srcAdjacency == null) {
-                    srcAdjacency = new HashMap<Node, List<Edge>>();
-                    this.adjacency.put(src, srcAdjacency);
-                }
-                List<Edge> adjacencyEdges = srcAdjacency.get(tgt);
-                if (adjacencyEdges == null) {
-                    adjacencyEdges = new LinkedList<Edge>();
-                    srcAdjacency.put(tgt, adjacencyEdges);
+            if (this.nodes.contains(src) && this.nodes.contains(tgt)) {
+                index(edge);
+                if (this.delta != null) {
+                    this.delta.edgeAdded(edge);
                 }
-                adjacencyEdges.add(edge);
 
+                if (this.edgeAddedListener != null) {
+                    this.edgeAddedListener.onAdded(edge);
+                }
                 fireGraphChanged();
             } else {
                 this.edges.remove(edge);
@@ -88,43 +118,144 @@ public final class Graph {
         }
     }
 
+    /**
+     * Delta listeners are told exactly which nodes and edges were added or removed, once per change or once per
+     * batch.
+     */
+    public void addGraphDeltaListener(final GraphDeltaListener l) {
+        synchronized (this.deltaListeners) {
+            this.deltaListeners.add(l);
+            if (this.delta == null) {
+                this.delta = new GraphDelta();
+            }
+        }
+    }
+
     public Node addNode(final Node node) {
         if (this.nodes.add(node)) {
+            if (this.delta != null) {
+                this.delta.nodeAdded(node);
+            }
+            if (this.nodeAddedListener != null) {
+                this.nodeAddedListener.onAdded(node);
+            }
             fireGraphChanged();
         }
         return node;
     }
 
+    /**
+     * Runs the mutations as one batch, see {@link #beginBatch()}.
+     */
+    public void batch(final Runnable mutations) {
+        beginBatch();
+        try {
+            mutations.run();
+        } finally {
+            commitBatch();
+        }
+    }
+
+    /**
+     * Starts a batch of mutations. Until the matching {@link #commitBatch()} graph changed listeners are not called,
+     * the commit notifies them once if anything changed. Batches may be nested, only the outermost commit notifies.
+     * Added and removed listeners are still called for every node and edge.
+     */
+    public void beginBatch() {
+        this.batchDepth++;
+    }
+
+    /**
+     * @return the initial capacity of a hash table holding the number of elements without rehashing
+     */
+    private static final int capacity(final int expected) {
+        return Math.max(16, (int) Math.min(Integer.MAX_VALUE, expected * 4L / 3L + 1L));
+    }
+
+    /**
+     * Ends the batch started by the last {@link #beginBatch()}.
+     */
+    public void commitBatch() {
+        if (this.batchDepth == 0) {
+            throw new IllegalStateException("No batch in progress.");
+        }
+        if (--this.batchDepth == 0 && this.batchChanged) {
+            this.batchChanged = false;
+            fireGraphChanged();
+        }
+    }
+
+    /**
+     * @return a new edge with a unique id, not yet added to the graph, safe to call from any thread
+     */
+    public Edge createEdge(final Node source, final Node target, final EdgeData data) {
+        return new Edge(this.nextEdgeId.getAndIncrement(), source, target, data);
+    }
+
+    /**
+     * @return a new node with a unique id, not yet added to the graph, safe to call from any thread
+     */
+    public Node createNode(final NodeData data) {
+        return new Node(this.nextNodeId.getAndIncrement(), data);
+    }
+
     public void detachNode(final Node node) {
-        final Set<Edge> tmpEdges = new HashSet<Edge>(this.edges);
-        for (Edge e : tmpEdges) {
-            if (node.equals(e.getSource()) || node.equals(e.getTarget())) {
+        final List<Edge> incident = new ArrayList<Edge>(getOutEdges(node));
+        incident.addAll(getInEdges(node));
+        beginBatch();
+        try {
+            for (Edge e : incident) {
+                // self loops are in both lists
                 removeEdge(e);
             }
+            fireGraphChanged();
+        } finally {
+            commitBatch();
         }
-
-        fireGraphChanged();
     }
 
     public void filterEdges(final EdgeFilter filter) {
         final Set<Edge> tmpEdges = new HashSet<Edge>(this.edges);
-        for (Edge e : tmpEdges) {
-            if (!filter.accept(e)) {
-                removeEdge(e);
+        beginBatch();
+        try {
+            for (Edge e : tmpEdges) {
+                if (!filter.accept(e)) {
+                    removeEdge(e);
+                }
             }
+        } finally {
+            commitBatch();
         }
     }
 
     public void filterNodes(final NodeFilter filter) {
         final Set<Node> tmpNodes = new HashSet<Node>(this.nodes);
-        for (Node n : tmpNodes) {
-            if (!filter.accept(n)) {
-                removeNode(n);
+        beginBatch();
+        try {
+            for (Node n : tmpNodes) {
+                if (!filter.accept(n)) {
+                    removeNode(n);
+                }
             }
+        } finally {
+            commitBatch();
         }
     }
 
     private final void fireGraphChanged() {
+        if (this.batchDepth > 0) {
+            this.batchChanged = true;
+            return;
+        }
+        synchronized (this.deltaListeners) {
+            final GraphDelta changes = this.delta;
+            if (changes != null && !changes.isEmpty()) {
+                this.delta = new GraphDelta();
+                for (GraphDeltaListener l : this.deltaListeners) {
+                    l.onChanged(changes);
+                }
+            }
+        }
         synchronized (this.eventListeners) {
             for (GraphChangedListener l : this.eventListeners) {
                 l.onChanged();
@@ -139,6 +270,13 @@ public final class Graph {
         return adjacency;
     }
 
+    /**
+     * @return the edgeAddedListener
+     */
+    public EdgeAddedListener getEdgeAddedListener() {
+        return this.edgeAddedListener;
+    }
+
     /**
      * @return the edgeRemovedListener
      */
@@ -169,6 +307,37 @@ public final class Graph {
         return eventListeners;
     }
 
+    /**
+     * @return the edges ending at the node
+     */
+    public Set<Edge> getInEdges(final Node node) {
+        final Set<Edge> incident = this.inEdges.get(node);
+        return incident == null ? EMPTY_EDGE_SET : Collections.unmodifiableSet(incident);
+    }
+
+    /**
+     * @return all nodes connected to the node by an edge in either direction
+     */
+    public Set<Node> getNeighbors(final Node node) {
+        final Set<Node> neighbors = new LinkedHashSet<Node>();
+        final Map<Node, List<Edge>> targets = this.adjacency.get(node);
+        if (targets != null) {
+            neighbors.addAll(targets.keySet());
+        }
+        final Map<Node, List<Edge>> sources = this.reverseAdjacency.get(node);
+        if (sources != null) {
+            neighbors.addAll(sources.keySet());
+        }
+        return neighbors;
+    }
+
+    /**
+     * @return the nodeAddedListener
+     */
+    public NodeAddedListener getNodeAddedListener() {
+        return this.nodeAddedListener;
+    }
+
     /**
      * @return the nodeRemovedListener
      */
@@ -183,31 +352,76 @@ public final class Graph {
         return this.nodes;
     }
 
+    /**
+     * @return the edges starting at the node
+     */
+    public Set<Edge> getOutEdges(final Node node) {
+        final Set<Edge> incident = this.outEdges.get(node);
+        return incident == null ? EMPTY_EDGE_SET : Collections.unmodifiableSet(incident);
+    }
+
+    private final void index(final Edge edge) {
+        final Node src = edge.getSource();
+        final Node tgt = edge.getTarget();
+        index(this.adjacency, src, tgt, edge);
+        index(this.reverseAdjacency, tgt, src, edge);
+        index(this.outEdges, src, edge);
+        index(this.inEdges, tgt, edge);
+    }
+
+    private static final void index(final Map<Node, Map<Node, List<Edge>>> adjacency, final Node from,
+            final Node to, final Edge edge) {
+        Map<Node, List<Edge>> fromAdjacency = adjacency.get(from);
+        if (fromAdjacency == null) {
+            fromAdjacency = new HashMap<Node, List<Edge>>();
+            adjacency.put(from, fromAdjacency);
+        }
+        List<Edge> adjacencyEdges = fromAdjacency.get(to);
+        if (adjacencyEdges == null) {
+            adjacencyEdges = new ArrayList<Edge>(1);
+            fromAdjacency.put(to, adjacencyEdges);
+        }
+        adjacencyEdges.add(edge);
+    }
+
+    private static final void index(final Map<Node, Set<Edge>> incidence, final Node node, final Edge edge) {
+        Set<Edge> incident = incidence.get(node);
+        if (incident == null) {
+            incident = new LinkedHashSet<Edge>();
+            incidence.put(node, incident);
+        }
+        incident.add(edge);
+    }
+
+    /**
+     * @return true while a batch is open
+     */
+    public final boolean isBatching() {
+        return this.batchDepth > 0;
+    }
+
     public void merge(final Set<Node> nodes, final Set<Edge> edges) {
         this.nodes.addAll(nodes);
-        this.edges.addAll(edges);
+        for (Edge e : edges) {
+            if (this.edges.add(e)) {
+                index(e);
+            }
+        }
     }
 
     public Edge newEdge(final Node source, final Node target, final EdgeData data) {
-        return addEdge(new Edge(this.nextEdgeId++, source, target, data));
+        return addEdge(createEdge(source, target, data));
     }
 
     public Node newNode(final NodeData data) {
-        return addNode(new Node(this.nextNodeId++, data));
+        return addNode(createNode(data));
     }
 
     public void removeEdge(final Edge e) {
         if (this.edges.remove(e)) {
-            final Set<Node> srcs = this.adjacency.keySet();
-            Map<Node, List<Edge>> srcAdjacency;
-            Set<Node> tgts;
-
-            for (Node src : srcs) {
-                srcAdjacency = this.adjacency.get(src);
-                tgts = srcAdjacency.keySet();
-                for (Node tgt : tgts) {
-                    srcAdjacency.get(tgt).remove(e);
-                }
+            unindex(e);
+            if (this.delta != null) {
+                this.delta.edgeRemoved(e);
             }
             fireGraphChanged();
             if (this.edgeRemovedListener != null) {
@@ -222,14 +436,37 @@ public final class Graph {
         }
     }
 
+    public void removeGraphDeltaListener(final GraphDeltaListener l) {
+        synchronized (this.deltaListeners) {
+            this.deltaListeners.remove(l);
+            if (this.deltaListeners.isEmpty()) {
+                this.delta = null;
+            }
+        }
+    }
+
     public void removeNode(final Node node) {
-        this.nodes.remove(node);
+        if (this.nodes.remove(node) && this.delta != null) {
+            this.delta.nodeRemoved(node);
+        }
         detachNode(node);
+        this.adjacency.remove(node);
+        this.reverseAdjacency.remove(node);
+        this.outEdges.remove(node);
+        this.inEdges.remove(node);
         if (this.nodeRemovedListener != null) {
             this.nodeRemovedListener.onRemoved(node);
         }
     }
 
+    /**
+     * @param edgeAddedListener
+     *            the edgeAddedListener to set
+     */
+    public void setEdgeAddedListener(EdgeAddedListener edgeAddedListener) {
+        this.edgeAddedListener = edgeAddedListener;
+    }
+
     /**
      * @param edgeRemovedListener
      *            the edgeRemovedListener to set
@@ -238,6 +475,14 @@ public final class Graph {
         this.edgeRemovedListener = edgeRemovedListener;
     }
 
+    /**
+     * @param nodeAddedListener
+     *            the nodeAddedListener to set
+     */
+    public void setNodeAddedListener(NodeAddedListener nodeAddedListener) {
+        this.nodeAddedListener = nodeAddedListener;
+    }
+
     /**
      * @param nodeRemovedListener
      *            the nodeRemovedListener to set
@@ -245,4 +490,34 @@ public final class Graph {
     public void setNodeRemovedListener(NodeRemovedListener nodeRemovedListener) {
         this.nodeRemovedListener = nodeRemovedListener;
     }
+
+    private final void unindex(final Edge edge) {
+        final Node src = edge.getSource();
+        final Node tgt = edge.getTarget();
+        unindex(this.adjacency, src, tgt, edge);
+        unindex(this.reverseAdjacency, tgt, src, edge);
+        unindex(this.outEdges, src, edge);
+        unindex(this.inEdges, tgt, edge);
+    }
+
+    private static final void unindex(final Map<Node, Map<Node, List<Edge>>> adjacency, final Node from,
+            final Node to, final Edge edge) {
+        final Map<Node, List<Edge>> fromAdjacency = adjacency.get(from);
+        if (fromAdjacency != null) {
+            final List<Edge> adjacencyEdges = fromAdjacency.get(to);
+            if (adjacencyEdges != null) {
+                adjacencyEdges.remove(edge);
+                if (adjacencyEdges.isEmpty()) {
+                    fromAdjacency.remove(to);
+                }
+            }
+        }
+    }
+
+    private static final void unindex(final Map<Node, Set<Edge>> incidence, final Node node, final Edge edge) {
+        final Set<Edge> incident = incidence.get(node);
+        if (incident != null) {
+            incident.remove(edge);
+        }
+    }
 }
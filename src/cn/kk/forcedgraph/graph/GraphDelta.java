@@ -0,0 +1,114 @@
+/*  Copyright (c) 2010 Xiaoyun Zhu
+ * 
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy  
+ *  of this software and associated documentation files (the "Software"), to deal  
+ *  in the Software without restriction, including without limitation the rights  
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell  
+ *  copies of the Software, and to permit persons to whom the Software is  
+ *  furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in  
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR  
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,  
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER  
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,  
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
+ *  THE SOFTWARE.  
+ */
+package cn.kk.forcedgraph.graph;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The nodes and edges added to and removed from a {@link Graph} by one change, or by one batch of changes. Something
+ * added and removed again within the same batch appears in neither set.
+ * 
+ * @author x_kez
+ * 
+ */
+public final class GraphDelta {
+    private final Set<Node> addedNodes;
+    private final Set<Node> removedNodes;
+    private final Set<Edge> addedEdges;
+    private final Set<Edge> removedEdges;
+
+    GraphDelta() {
+        this.addedNodes = new LinkedHashSet<Node>();
+        this.removedNodes = new LinkedHashSet<Node>();
+        this.addedEdges = new LinkedHashSet<Edge>();
+        this.removedEdges = new LinkedHashSet<Edge>();
+    }
+
+    final void edgeAdded(final Edge edge) {
+        if (!this.removedEdges.remove(edge)) {
+            this.addedEdges.add(edge);
+        }
+    }
+
+    final void edgeRemoved(final Edge edge) {
+        if (!this.addedEdges.remove(edge)) {
+            this.removedEdges.add(edge);
+        }
+    }
+
+    /**
+     * @return the addedEdges
+     */
+    public final Set<Edge> getAddedEdges() {
+        return Collections.unmodifiableSet(this.addedEdges);
+    }
+
+    /**
+     * @return the addedNodes
+     */
+    public final Set<Node> getAddedNodes() {
+        return Collections.unmodifiableSet(this.addedNodes);
+    }
+
+    /**
+     * @return the removedEdges
+     */
+    public final Set<Edge> getRemovedEdges() {
+        return Collections.unmodifiableSet(this.removedEdges);
+    }
+
+    /**
+     * @return the removedNodes
+     */
+    public final Set<Node> getRemovedNodes() {
+        return Collections.unmodifiableSet(this.removedNodes);
+    }
+
+    public final boolean isEmpty() {
+        return this.addedNodes.isEmpty() && this.removedNodes.isEmpty() && this.addedEdges.isEmpty()
+                && this.removedEdges.isEmpty();
+    }
+
+    final void nodeAdded(final Node node) {
+        if (!this.removedNodes.remove(node)) {
+            this.addedNodes.add(node);
+        }
+    }
+
+    final void nodeRemoved(final Node node) {
+        if (!this.addedNodes.remove(node)) {
+            this.removedNodes.add(node);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "GraphDelta [addedNodes=" + this.addedNodes.size() + ", removedNodes=" + this.removedNodes.size()
+                + ", addedEdges=" + this.addedEdges.size() + ", removedEdges=" + this.removedEdges.size() + "]";
+    }
+}
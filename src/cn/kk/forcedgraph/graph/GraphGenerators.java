@@ -0,0 +1,291 @@
+/*  Copyright (c) 2010 Xiaoyun Zhu
+ * 
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy  
+ *  of this software and associated documentation files (the "Software"), to deal  
+ *  in the Software without restriction, including without limitation the rights  
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell  
+ *  copies of the Software, and to permit persons to whom the Software is  
+ *  furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in  
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR  
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,  
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER  
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,  
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
+ *  THE SOFTWARE.  
+ */
+package cn.kk.forcedgraph.graph;
+
+import java.util.Random;
+
+import cn.kk.forcedgraph.bean.EdgeData;
+import cn.kk.forcedgraph.bean.NodeData;
+
+/**
+ * Synthetic graphs for benchmarks and load tests. Every generator appends to the given graph in one batch and draws
+ * from its own seeded random, so the same arguments always give the same graph. Sparse generators run in time linear
+ * in nodes plus edges, a graph sized with {@link Graph#Graph(int, int)} takes millions of both.
+ * 
+ * @author x_kez
+ * 
+ */
+public final class GraphGenerators {
+    // Graph500 quadrant probabilities
+    public static final double RMAT_A = 0.57;
+    public static final double RMAT_B = 0.19;
+    public static final double RMAT_C = 0.19;
+
+    /**
+     * Preferential attachment: starts with a clique of edgesPerNode + 1 nodes, every further node links to
+     * edgesPerNode distinct nodes chosen proportional to their degree. Degrees follow a power law.
+     */
+    public static Graph barabasiAlbert(final Graph graph, final int nodes, final int edgesPerNode, final long seed) {
+        final Random random = new Random(seed);
+        graph.batch(new Runnable() {
+            @Override
+            public void run() {
+                final Node[] created = newNodes(graph, nodes);
+                final int core = Math.min(nodes, edgesPerNode + 1);
+                // both ends of every edge, picking a random entry picks proportional to the degree
+                final int[] ends = new int[(int) Math.min(Integer.MAX_VALUE - 8, 2L * nodes * edgesPerNode)];
+                int size = 0;
+                for (int i = 0; i < core; i++) {
+                    for (int j = 0; j < i; j++) {
+                        link(graph, created[i], created[j]);
+                        ends[size++] = i;
+                        ends[size++] = j;
+                    }
+                }
+                final int[] targets = new int[edgesPerNode];
+                for (int i = core; i < nodes; i++) {
+                    final int known = size;
+                    for (int t = 0; t < edgesPerNode; t++) {
+                        int target;
+                        do {
+                            target = ends[random.nextInt(known)];
+                        } while (contains(targets, t, target));
+                        targets[t] = target;
+                        link(graph, created[i], created[target]);
+                        ends[size++] = i;
+                        ends[size++] = target;
+                    }
+                }
+            }
+        });
+        return graph;
+    }
+
+    /**
+     * Planted partition: clusters of clusterSize nodes, each pair inside a cluster is linked with probability
+     * inside, each pair across clusters with probability outside.
+     */
+    public static Graph clustered(final Graph graph, final int clusters, final int clusterSize,
+            final double inside, final double outside, final long seed) {
+        final Random random = new Random(seed);
+        graph.batch(new Runnable() {
+            @Override
+            public void run() {
+                final int nodes = clusters * clusterSize;
+                final Node[] created = newNodes(graph, nodes);
+                for (int c = 0; c < clusters; c++) {
+                    linkPairs(graph, created, c * clusterSize, clusterSize, inside, random);
+                }
+                // the pairs across clusters are too many to visit, draw the expected number of them instead
+                final double pairs = ((double) nodes * nodes - (double) clusters * clusterSize * clusterSize) / 2d;
+                final long links = Math.round(pairs * outside);
+                for (long l = 0; l < links; l++) {
+                    int a;
+                    int b;
+                    do {
+                        a = random.nextInt(nodes);
+                        b = random.nextInt(nodes);
+                    } while (a / clusterSize == b / clusterSize);
+                    link(graph, created[a], created[b]);
+                }
+            }
+        });
+        return graph;
+    }
+
+    private static final boolean contains(final int[] values, final int size, final int value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * G(n, p): every pair of nodes is linked with the probability. Skips over the pairs left out instead of testing
+     * each one (Batagelj and Brandes), so sparse graphs are built in linear time.
+     */
+    public static Graph erdosRenyi(final Graph graph, final int nodes, final double probability, final long seed) {
+        final Random random = new Random(seed);
+        graph.batch(new Runnable() {
+            @Override
+            public void run() {
+                linkPairs(graph, newNodes(graph, nodes), 0, nodes, probability, random);
+            }
+        });
+        return graph;
+    }
+
+    /**
+     * Lattice of width times height nodes, wrapped around into a torus if asked to.
+     */
+    public static Graph grid(final Graph graph, final int width, final int height, final boolean torus) {
+        graph.batch(new Runnable() {
+            @Override
+            public void run() {
+                final Node[] created = newNodes(graph, width * height);
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        final Node node = created[y * width + x];
+                        if (x + 1 < width) {
+                            link(graph, node, created[y * width + x + 1]);
+                        } else if (torus && width > 2) {
+                            link(graph, node, created[y * width]);
+                        }
+                        if (y + 1 < height) {
+                            link(graph, node, created[(y + 1) * width + x]);
+                        } else if (torus && height > 2) {
+                            link(graph, node, created[x]);
+                        }
+                    }
+                }
+            }
+        });
+        return graph;
+    }
+
+    private static final void link(final Graph graph, final Node source, final Node target) {
+        graph.newEdge(source, target, new EdgeData());
+    }
+
+    /**
+     * Links each pair of the count nodes starting at from with the probability.
+     */
+    private static final void linkPairs(final Graph graph, final Node[] nodes, final int from, final int count,
+            final double probability, final Random random) {
+        if (probability <= 0d) {
+            return;
+        }
+        if (probability >= 1d) {
+            for (int v = 1; v < count; v++) {
+                for (int w = 0; w < v; w++) {
+                    link(graph, nodes[from + v], nodes[from + w]);
+                }
+            }
+            return;
+        }
+        final double logSkip = Math.log(1d - probability);
+        int v = 1;
+        long w = -1;
+        while (v < count) {
+            w += 1 + (long) Math.floor(Math.log(1d - random.nextDouble()) / logSkip);
+            while (w >= v && v < count) {
+                w -= v;
+                v++;
+            }
+            if (v < count) {
+                link(graph, nodes[from + v], nodes[from + (int) w]);
+            }
+        }
+    }
+
+    private static final Node[] newNodes(final Graph graph, final int count) {
+        final Node[] nodes = new Node[count];
+        for (int i = 0; i < count; i++) {
+            nodes[i] = graph.newNode(new NodeData());
+        }
+        return nodes;
+    }
+
+    /**
+     * Random tree: every node after the first hangs off a uniformly chosen earlier node.
+     */
+    public static Graph randomTree(final Graph graph, final int nodes, final long seed) {
+        final Random random = new Random(seed);
+        graph.batch(new Runnable() {
+            @Override
+            public void run() {
+                final Node[] created = newNodes(graph, nodes);
+                for (int i = 1; i < nodes; i++) {
+                    link(graph, created[i], created[random.nextInt(i)]);
+                }
+            }
+        });
+        return graph;
+    }
+
+    /**
+     * R-MAT with the Graph500 parameters, see {@link #rmat(Graph, int, int, double, double, double, long)}.
+     */
+    public static Graph rmat(final Graph graph, final int scale, final int edgeFactor, final long seed) {
+        return rmat(graph, scale, edgeFactor, RMAT_A, RMAT_B, RMAT_C, seed);
+    }
+
+    /**
+     * Recursive matrix graph: 2^scale nodes and edgeFactor edges per node, each edge descends into one of the four
+     * quadrants of the adjacency matrix with the probabilities a, b, c and the rest, once per bit. Skewed
+     * probabilities give the heavy tailed degrees and community structure of real networks. Self loops are drawn
+     * again, parallel edges are kept.
+     */
+    public static Graph rmat(final Graph graph, final int scale, final int edgeFactor, final double a,
+            final double b, final double c, final long seed) {
+        final Random random = new Random(seed);
+        graph.batch(new Runnable() {
+            @Override
+            public void run() {
+                final int nodes = 1 << scale;
+                final Node[] created = newNodes(graph, nodes);
+                final long edges = (long) edgeFactor * nodes;
+                for (long e = 0; e < edges; e++) {
+                    int source;
+                    int target;
+                    do {
+                        source = 0;
+                        target = 0;
+                        for (int bit = 1 << (scale - 1); bit > 0; bit >>= 1) {
+                            final double r = random.nextDouble();
+                            if (r >= a + b + c) {
+                                source |= bit;
+                                target |= bit;
+                            } else if (r >= a + b) {
+                                source |= bit;
+                            } else if (r >= a) {
+                                target |= bit;
+                            }
+                        }
+                    } while (source == target && nodes > 1);
+                    link(graph, created[source], created[target]);
+                }
+            }
+        });
+        return graph;
+    }
+
+    /**
+     * Complete tree, breadth first: node i hangs off node (i - 1) / branching.
+     */
+    public static Graph tree(final Graph graph, final int nodes, final int branching) {
+        graph.batch(new Runnable() {
+            @Override
+            public void run() {
+                final Node[] created = newNodes(graph, nodes);
+                for (int i = 1; i < nodes; i++) {
+                    link(graph, created[i], created[(i - 1) / branching]);
+                }
+            }
+        });
+        return graph;
+    }
+
+    private GraphGenerators() {
+    }
+}
@@ -21,7 +21,6 @@
 package cn.kk.forcedgraph.graph;
 
 import cn.kk.forcedgraph.bean.NodeData;
-import cn.kk.forcedgraph.layout.GraphPanel;
 
 public final class Node {
     private final int id;
@@ -65,11 +64,6 @@ public final class Node {
         return this.data;
     }
 
-    public final double getHeight(GraphPanel panel) {
-        // Magic number with no explanation
-        return 20d;
-    }
-
     /**
      * @return the id
      */
@@ -77,10 +71,6 @@ public final class Node {
         return this.id;
     }
 
-    public final double getWidth(GraphPanel panel) {
-        return panel.calculateStringWidth(this.data.getLabel()) + 12d;
-    }
-
     /*
      * (non-Javadoc)
      * 
@@ -20,132 +20,103 @@
  */
 package cn.kk.forcedgraph.graph;
 
-import java.util.LinkedList;
-import java.util.List;
-
+/**
+ * View onto one slot of a {@link PointStore}.
+ */
 public class Point {
-    private static final List<Point> POINTS = new LinkedList<Point>();
-    private static int nextPointId;
-    private static final double REPULSION_CONSTANT = 100.0; // repulsion constant
-    private static final double DAMPING_CONSTANT = 0.5; // damping constant, points lose velocity over time
+    private final PointStore store;
 
-    /**
-     * points are slightly repulsed by other points
-     */
-    public static void applyCoulombsLaw() {
-        for (Point p1 : POINTS) {
-            for (Point p2 : POINTS) {
-                if (p1 != p2) {
-                    final Vector d = Vector.subtract(p1.position, p2.position);
-                    final double distance = d.magnitude() + 1.0;
-                    // apply force to each end point
-                    d.normalize().multiply(REPULSION_CONSTANT / distance / distance);
-                    p1.applyForce(Vector.divide(d, 0.5));
-                    p2.applyForce(d.divide(-0.5));
-                }
-            }
-        }
-    }
+    private int index;
 
-    public static final void remove(Point p) {
-        POINTS.remove(p);
+    Point(final PointStore store, final int index) {
+        this.store = store;
+        this.index = index;
     }
 
-    public static void updatePosition(final double timestep) {
-        for (Point p : POINTS) {
-            p.position.add(Vector.multiply(p.velocity, timestep));
-        }
+    public void applyForce(final Vector force) {
+        applyForce(force.getX(), force.getY());
     }
 
-    public static void updateVelocity(final double timeStep) {
-        for (Point p : POINTS) {
-            p.velocity.add(p.force.multiply(timeStep)).multiply(DAMPING_CONSTANT);
-            p.force.clear();
+    public void applyForce(final double x, final double y) {
+        final double mass = this.store.getMass()[this.index];
+        if (mass != 0d) {
+            this.store.getFx()[this.index] += x / mass;
+            this.store.getFy()[this.index] += y / mass;
         }
     }
 
-    private final int id;
-
-    private Vector position;
-
-    private double mass;
-
-    private Vector velocity;
-
-    private Vector force;
-
-    public Point(final Vector position, final double mass) {
-        this.id = nextPointId++;
-        this.position = position;
-        this.mass = mass;
-        this.velocity = new Vector(0d, 0d);
-        this.force = new Vector(0d, 0d);
-
-        POINTS.add(this);
-    }
-
-    public void applyForce(final Vector force) {
-        this.force.add(force.divide(this.mass));
-    }
-
-    /*
-     * (non-Javadoc)
-     * 
-     * @see java.lang.Object#equals(java.lang.Object)
+    /**
+     * @return a copy of the accumulated force
      */
-    @Override
-    public boolean equals(Object obj) {
-        if (this == obj) {
-            return true;
-        }
-        if (obj == null) {
-            return false;
-        }
-        if (getClass() != obj.getClass()) {
-            return false;
-        }
-        Point other = (Point) obj;
-        if (this.id != other.id) {
-            return false;
-        }
-        return true;
+    public final Vector getForce() {
+        return new Vector(this.store.getFx()[this.index], this.store.getFy()[this.index]);
     }
 
     /**
-     * @return the force
+     * @return the slot of this point in its store, -1 after removal
      */
-    public final Vector getForce() {
-        return force;
+    public final int getIndex() {
+        return this.index;
     }
 
     /**
      * @return the mass
      */
     public final double getMass() {
-        return mass;
+        return this.store.getMass()[this.index];
     }
 
     /**
-     * @return the position
+     * @return a copy of the position
      */
     public final Vector getPosition() {
-        return position;
+        return new Vector(this.store.getX()[this.index], this.store.getY()[this.index]);
     }
 
     /**
-     * @return the velocity
+     * @return the store
      */
-    public final Vector getVelocity() {
-        return velocity;
+    public final PointStore getStore() {
+        return this.store;
     }
 
-    /*
-     * (non-Javadoc)
-     * 
-     * @see java.lang.Object#hashCode()
+    /**
+     * @return a copy of the velocity
      */
-    @Override
-    public int hashCode() {
-        return this.id;
+    public final Vector getVelocity() {
+        return new Vector(this.store.getVx()[this.index], this.store.getVy()[this.index]);
+    }
+
+    public final double getX() {
+        return this.store.getX()[this.index];
+    }
+
+    public final double getY() {
+        return this.store.getY()[this.index];
+    }
+
+    public final boolean isFrozen() {
+        return this.store.getFrozen()[this.index];
+    }
+
+    public final boolean isSleeping() {
+        return this.store.getSleeping()[this.index];
+    }
+
+    public final void setFrozen(final boolean frozen) {
+        this.store.setFrozen(this.index, frozen);
+    }
+
+    final void setIndex(final int index) {
+        this.index = index;
+    }
+
+    public final void setPosition(final double x, final double y) {
+        this.store.getX()[this.index] = x;
+        this.store.getY()[this.index] = y;
+    }
+
+    public final void setSleeping(final boolean sleeping) {
+        this.store.setSleeping(this.index, sleeping);
     }
 }
@@ -0,0 +1,253 @@
+/*  Copyright (c) 2010 Xiaoyun Zhu
+ * 
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy  
+ *  of this software and associated documentation files (the "Software"), to deal  
+ *  in the Software without restriction, including without limitation the rights  
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell  
+ *  copies of the Software, and to permit persons to whom the Software is  
+ *  furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in  
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR  
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,  
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER  
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,  
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
+ *  THE SOFTWARE.  
+ */
+package cn.kk.forcedgraph.graph;
+
+import java.util.Arrays;
+
+/**
+ * Dense simulation state of all points of a layout. Position, velocity, force, mass and the frozen and sleeping flags
+ * are kept in parallel primitive arrays addressed by a compact index, {@link Point} instances are views onto one slot.
+ * Removing a point moves the last slot into the gap, so valid indices are always 0 .. size - 1.
+ * 
+ * @author x_kez
+ * 
+ */
+public final class PointStore {
+    private int size;
+    private Node[] nodes;
+    private Point[] points;
+    private double[] x;
+    private double[] y;
+    private double[] vx;
+    private double[] vy;
+    private double[] fx;
+    private double[] fy;
+    private double[] mass;
+    // frozen points are held in place by the layout, sleeping points have settled by themselves
+    private boolean[] frozen;
+    private boolean[] sleeping;
+    // frozen or sleeping: keeps its position, receives no forces but still repels and anchors springs
+    private boolean[] inert;
+    // steps a point has rested within reach of its anchor position
+    private int[] quietSteps;
+    private double[] anchorX;
+    private double[] anchorY;
+
+    public PointStore() {
+        this(16);
+    }
+
+    public PointStore(final int capacity) {
+        this.nodes = new Node[capacity];
+        this.points = new Point[capacity];
+        this.x = new double[capacity];
+        this.y = new double[capacity];
+        this.vx = new double[capacity];
+        this.vy = new double[capacity];
+        this.fx = new double[capacity];
+        this.fy = new double[capacity];
+        this.mass = new double[capacity];
+        this.frozen = new boolean[capacity];
+        this.sleeping = new boolean[capacity];
+        this.inert = new boolean[capacity];
+        this.quietSteps = new int[capacity];
+        this.anchorX = new double[capacity];
+        this.anchorY = new double[capacity];
+    }
+
+    public Point add(final Node node, final Vector position, final double mass) {
+        final int i = this.size;
+        if (i == this.x.length) {
+            grow(i * 2);
+        }
+        this.nodes[i] = node;
+        this.x[i] = position.getX();
+        this.y[i] = position.getY();
+        this.vx[i] = 0d;
+        this.vy[i] = 0d;
+        this.fx[i] = 0d;
+        this.fy[i] = 0d;
+        this.mass[i] = mass;
+        this.frozen[i] = false;
+        this.sleeping[i] = false;
+        this.inert[i] = false;
+        this.quietSteps[i] = 0;
+        this.anchorX[i] = this.x[i];
+        this.anchorY[i] = this.y[i];
+        final Point point = new Point(this, i);
+        this.points[i] = point;
+        this.size++;
+        return point;
+    }
+
+    /**
+     * Releases all points, their views become invalid.
+     */
+    public void clear() {
+        for (int i = 0; i < this.size; i++) {
+            this.points[i].setIndex(-1);
+        }
+        Arrays.fill(this.nodes, 0, this.size, null);
+        Arrays.fill(this.points, 0, this.size, null);
+        this.size = 0;
+    }
+
+    public final double[] getAnchorX() {
+        return this.anchorX;
+    }
+
+    public final double[] getAnchorY() {
+        return this.anchorY;
+    }
+
+    public final boolean[] getFrozen() {
+        return this.frozen;
+    }
+
+    public final double[] getFx() {
+        return this.fx;
+    }
+
+    public final double[] getFy() {
+        return this.fy;
+    }
+
+    /**
+     * @return per point whether it is frozen or sleeping
+     */
+    public final boolean[] getInert() {
+        return this.inert;
+    }
+
+    public final double[] getMass() {
+        return this.mass;
+    }
+
+    public final Node getNode(final int index) {
+        return this.nodes[index];
+    }
+
+    public final Point getPoint(final int index) {
+        return this.points[index];
+    }
+
+    public final int[] getQuietSteps() {
+        return this.quietSteps;
+    }
+
+    public final boolean[] getSleeping() {
+        return this.sleeping;
+    }
+
+    public final double[] getVx() {
+        return this.vx;
+    }
+
+    public final double[] getVy() {
+        return this.vy;
+    }
+
+    public final double[] getX() {
+        return this.x;
+    }
+
+    public final double[] getY() {
+        return this.y;
+    }
+
+    private final void grow(final int capacity) {
+        this.nodes = Arrays.copyOf(this.nodes, capacity);
+        this.points = Arrays.copyOf(this.points, capacity);
+        this.x = Arrays.copyOf(this.x, capacity);
+        this.y = Arrays.copyOf(this.y, capacity);
+        this.vx = Arrays.copyOf(this.vx, capacity);
+        this.vy = Arrays.copyOf(this.vy, capacity);
+        this.fx = Arrays.copyOf(this.fx, capacity);
+        this.fy = Arrays.copyOf(this.fy, capacity);
+        this.mass = Arrays.copyOf(this.mass, capacity);
+        this.frozen = Arrays.copyOf(this.frozen, capacity);
+        this.sleeping = Arrays.copyOf(this.sleeping, capacity);
+        this.inert = Arrays.copyOf(this.inert, capacity);
+        this.quietSteps = Arrays.copyOf(this.quietSteps, capacity);
+        this.anchorX = Arrays.copyOf(this.anchorX, capacity);
+        this.anchorY = Arrays.copyOf(this.anchorY, capacity);
+    }
+
+    public void remove(final Point point) {
+        final int i = point.getIndex();
+        if (i < 0 || i >= this.size || this.points[i] != point) {
+            return;
+        }
+        final int last = --this.size;
+        if (i != last) {
+            this.nodes[i] = this.nodes[last];
+            this.points[i] = this.points[last];
+            this.x[i] = this.x[last];
+            this.y[i] = this.y[last];
+            this.vx[i] = this.vx[last];
+            this.vy[i] = this.vy[last];
+            this.fx[i] = this.fx[last];
+            this.fy[i] = this.fy[last];
+            this.mass[i] = this.mass[last];
+            this.frozen[i] = this.frozen[last];
+            this.sleeping[i] = this.sleeping[last];
+            this.inert[i] = this.inert[last];
+            this.quietSteps[i] = this.quietSteps[last];
+            this.anchorX[i] = this.anchorX[last];
+            this.anchorY[i] = this.anchorY[last];
+            this.points[i].setIndex(i);
+        }
+        this.nodes[last] = null;
+        this.points[last] = null;
+        point.setIndex(-1);
+    }
+
+    /**
+     * Freezes or thaws a point, a frozen point also loses its velocity.
+     */
+    public final void setFrozen(final int index, final boolean frozen) {
+        this.frozen[index] = frozen;
+        this.inert[index] = frozen || this.sleeping[index];
+        if (frozen) {
+            this.vx[index] = 0d;
+            this.vy[index] = 0d;
+        }
+    }
+
+    /**
+     * Puts a point to sleep or wakes it up, either way it starts resting anew at its current position.
+     */
+    public final void setSleeping(final int index, final boolean sleeping) {
+        this.sleeping[index] = sleeping;
+        this.inert[index] = sleeping || this.frozen[index];
+        this.quietSteps[index] = 0;
+        this.anchorX[index] = this.x[index];
+        this.anchorY[index] = this.y[index];
+        if (sleeping) {
+            this.vx[index] = 0d;
+            this.vy[index] = 0d;
+        }
+    }
+
+    public final int size() {
+        return this.size;
+    }
+}
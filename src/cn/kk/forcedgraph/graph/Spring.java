@@ -20,30 +20,8 @@
  */
 package cn.kk.forcedgraph.graph;
 
-import java.util.HashSet;
-import java.util.Set;
-
 public final class Spring {
-    private static final Set<Spring> SPRINGS = new HashSet<Spring>();
-    private static int nextSpringId;
-
-    public static void applyHookesLaw() {
-        for (Spring s : SPRINGS) {
-            // the direction of the spring
-            final Vector d = Vector.subtract(s.point2.getPosition(), s.point1.getPosition());
-            final double displacement = s.length - d.magnitude();
-            // apply force to each end point
-            d.normalize().multiply(s.springStiffness * displacement);
-            s.point1.applyForce(Vector.multiply(d, -0.5));
-            s.point2.applyForce(d.multiply(0.5));
-        }
-    }
-
-    public static final void remove(Spring s) {
-        SPRINGS.remove(s);
-    }
-
-    private final int id;
+    private int index = -1;
     private final Point point1;
     private final Point point2;
 
@@ -53,12 +31,17 @@ public final class Spring {
     private final double springStiffness;
 
     public Spring(final Point point1, final Point point2, final double length, final double k) {
-        this.id = nextSpringId++;
         this.point1 = point1;
         this.point2 = point2;
         this.length = length;
         this.springStiffness = k;
-        SPRINGS.add(this);
+    }
+
+    /**
+     * @return the slot of this spring in its store, -1 if not stored
+     */
+    public final int getIndex() {
+        return this.index;
     }
 
     /**
@@ -89,13 +72,7 @@ public final class Spring {
         return this.springStiffness;
     }
 
-    /*
-     * (non-Javadoc)
-     * 
-     * @see java.lang.Object#hashCode()
-     */
-    @Override
-    public int hashCode() {
-        return this.id;
+    final void setIndex(final int index) {
+        this.index = index;
     }
 }
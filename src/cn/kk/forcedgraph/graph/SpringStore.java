@@ -0,0 +1,84 @@
+/*  Copyright (c) 2010 Xiaoyun Zhu
+ * 
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy  
+ *  of this software and associated documentation files (the "Software"), to deal  
+ *  in the Software without restriction, including without limitation the rights  
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell  
+ *  copies of the Software, and to permit persons to whom the Software is  
+ *  furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in  
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR  
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,  
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER  
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,  
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
+ *  THE SOFTWARE.  
+ */
+package cn.kk.forcedgraph.graph;
+
+import java.util.Arrays;
+
+/**
+ * Dense list of the springs of a layout. Removing a spring moves the last one into the gap so that the simulation can
+ * iterate 0 .. size - 1 without iterators.
+ * 
+ * @author x_kez
+ * 
+ */
+public final class SpringStore {
+    private int size;
+    private Spring[] springs;
+
+    public SpringStore() {
+        this(16);
+    }
+
+    public SpringStore(final int capacity) {
+        this.springs = new Spring[capacity];
+    }
+
+    public void add(final Spring spring) {
+        if (this.size == this.springs.length) {
+            this.springs = Arrays.copyOf(this.springs, this.size * 2);
+        }
+        spring.setIndex(this.size);
+        this.springs[this.size++] = spring;
+    }
+
+    /**
+     * Releases all springs.
+     */
+    public void clear() {
+        for (int i = 0; i < this.size; i++) {
+            this.springs[i].setIndex(-1);
+        }
+        Arrays.fill(this.springs, 0, this.size, null);
+        this.size = 0;
+    }
+
+    public final Spring get(final int index) {
+        return this.springs[index];
+    }
+
+    public void remove(final Spring spring) {
+        final int i = spring.getIndex();
+        if (i < 0 || i >= this.size || this.springs[i] != spring) {
+            return;
+        }
+        final int last = --this.size;
+        if (i != last) {
+            this.springs[i] = this.springs[last];
+            this.springs[i].setIndex(i);
+        }
+        this.springs[last] = null;
+        spring.setIndex(-1);
+    }
+
+    public final int size() {
+        return this.size;
+    }
+}
@@ -0,0 +1,342 @@
+/*  Copyright (c) 2010 Xiaoyun Zhu
+ * 
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy  
+ *  of this software and associated documentation files (the "Software"), to deal  
+ *  in the Software without restriction, including without limitation the rights  
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell  
+ *  copies of the Software, and to permit persons to whom the Software is  
+ *  furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in  
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR  
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,  
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER  
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,  
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
+ *  THE SOFTWARE.  
+ */
+package cn.kk.forcedgraph.layout;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import cn.kk.forcedgraph.graph.Edge;
+import cn.kk.forcedgraph.graph.Graph;
+import cn.kk.forcedgraph.graph.Node;
+import cn.kk.forcedgraph.graph.Vector;
+import cn.kk.forcedgraph.listener.LayoutProgressListener;
+
+/**
+ * Lays out every connected component of a graph on its own, in parallel, and packs the results onto shelves. Components
+ * neither repel each other nor wait for each other, a tiny component is done as soon as it converged. All components
+ * draw their steps from the one iteration budget of the options, and the progress listener sees their combined count.
+ * 
+ * @author x_kez
+ * 
+ */
+final class ComponentLayout {
+    // gap between packed components
+    private static final double SPACING = 2.0;
+
+    private static final Comparator<List<Node>> BY_SIZE = new Comparator<List<Node>>() {
+        @Override
+        public int compare(final List<Node> o1, final List<Node> o2) {
+            return o2.size() - o1.size();
+        }
+    };
+
+    private static final Comparator<double[]> BY_HEIGHT = new Comparator<double[]>() {
+        @Override
+        public int compare(final double[] o1, final double[] o2) {
+            return Double.compare(o2[3] - o2[1], o1[3] - o1[1]);
+        }
+    };
+
+    /**
+     * The iteration budget shared by the components, counts their steps and reports the sum of the latest energies of
+     * all components. Components still running when it runs out stop after the step they are in.
+     */
+    private static final class Budget {
+        private final int maxIterations;
+        private final LayoutProgressListener listener;
+        private final int interval;
+        private final double[] energies;
+        private int iterations;
+        private volatile boolean cancelled;
+        private volatile boolean exhausted;
+
+        Budget(final LayoutOptions options, final int components) {
+            this.maxIterations = options.getMaxIterations();
+            this.listener = options.getProgressListener();
+            this.interval = options.getProgressInterval();
+            this.energies = new double[components];
+        }
+
+        final void cancel() {
+            this.cancelled = true;
+        }
+
+        /**
+         * Counts the last step of a converged component, which the layout does not report as progress.
+         */
+        final synchronized void converged(final int component, final double energy) {
+            this.energies[component] = energy;
+            this.iterations++;
+        }
+
+        /**
+         * Counts one step of the component.
+         * 
+         * @return false if the component has to stop: the budget is used up or the layout was cancelled
+         */
+        final synchronized boolean step(final int component, final double energy) {
+            if (this.cancelled || this.exhausted) {
+                return false;
+            }
+            this.energies[component] = energy;
+            this.iterations++;
+            if (this.listener != null && this.iterations % this.interval == 0) {
+                double total = 0d;
+                for (double e : this.energies) {
+                    total += e;
+                }
+                if (!this.listener.onProgress(this.iterations, total)) {
+                    this.cancelled = true;
+                    return false;
+                }
+            }
+            if (this.iterations >= this.maxIterations) {
+                this.exhausted = true;
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * @return the connected components, largest first
+     */
+    static List<List<Node>> components(final Graph graph) {
+        final List<List<Node>> components = new ArrayList<List<Node>>();
+        final Set<Node> visited = new HashSet<Node>(graph.getNodes().size() * 2);
+        for (Node root : graph.getNodes()) {
+            if (!visited.add(root)) {
+                continue;
+            }
+            final List<Node> component = new ArrayList<Node>();
+            component.add(root);
+            // the component list doubles as the breadth first queue
+            for (int i = 0; i < component.size(); i++) {
+                final Node node = component.get(i);
+                for (Edge edge : graph.getOutEdges(node)) {
+                    if (visited.add(edge.getTarget())) {
+                        component.add(edge.getTarget());
+                    }
+                }
+                for (Edge edge : graph.getInEdges(node)) {
+                    if (visited.add(edge.getSource())) {
+                        component.add(edge.getSource());
+                    }
+                }
+            }
+            components.add(component);
+        }
+        Collections.sort(components, BY_SIZE);
+        return components;
+    }
+
+    static LayoutResult layout(final Graph graph, final LayoutOptions options) {
+        final long start = System.nanoTime();
+        final List<List<Node>> components = components(graph);
+        if (components.size() <= 1) {
+            return ForceDirectedLayout.layout(graph, options.copy().components(false));
+        }
+
+        // stops all components, when used up, by the progress listener or by interrupting the caller
+        final Budget budget = new Budget(options, components.size());
+
+        final List<Callable<LayoutResult>> tasks = new ArrayList<Callable<LayoutResult>>(components.size());
+        for (int c = 0; c < components.size(); c++) {
+            final List<Node> component = components.get(c);
+            final int index = c;
+            tasks.add(new Callable<LayoutResult>() {
+                @Override
+                public LayoutResult call() {
+                    if (component.size() == 1) {
+                        final Map<Node, Vector> positions = new HashMap<Node, Vector>(2);
+                        positions.put(component.get(0), new Vector(0d, 0d));
+                        return new LayoutResult(positions, LayoutResult.Status.CONVERGED, 0, 0d, 0L);
+                    }
+                    // every step is counted against the shared budget
+                    final LayoutOptions componentOptions = options.copy().components(false).parallelism(1)
+                            .progress(new LayoutProgressListener() {
+                                @Override
+                                public boolean onProgress(final int iteration, final double energy) {
+                                    return budget.step(index, energy);
+                                }
+                            }, 1);
+                    if (options.getSeed() != null) {
+                        componentOptions.seed(options.getSeed().longValue() + index);
+                    }
+                    if (options.getTimeBudget() > 0) {
+                        final long elapsed = (System.nanoTime() - start) / 1000000L;
+                        componentOptions.timeBudget(Math.max(1L, options.getTimeBudget() - elapsed));
+                    }
+                    final LayoutResult result = ForceDirectedLayout.layout(subgraph(graph, component),
+                            componentOptions);
+                    if (result.getStatus() == LayoutResult.Status.CONVERGED && result.getIterations() > 0) {
+                        budget.converged(index, result.getEnergy());
+                    }
+                    return result;
+                }
+            });
+        }
+
+        final List<LayoutResult> results = new ArrayList<LayoutResult>(tasks.size());
+        final int threads = Math.min(options.getParallelism(), tasks.size());
+        if (threads <= 1) {
+            for (Callable<LayoutResult> task : tasks) {
+                try {
+                    results.add(task.call());
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        } else {
+            final ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                final List<Future<LayoutResult>> futures = new ArrayList<Future<LayoutResult>>(tasks.size());
+                for (Callable<LayoutResult> task : tasks) {
+                    futures.add(pool.submit(task));
+                }
+                boolean interrupted = false;
+                for (Future<LayoutResult> future : futures) {
+                    while (true) {
+                        try {
+                            results.add(future.get());
+                            break;
+                        } catch (InterruptedException e) {
+                            // let the components stop by themselves, their positions are still needed
+                            interrupted = true;
+                            budget.cancel();
+                        } catch (ExecutionException e) {
+                            throw new IllegalStateException(e.getCause());
+                        }
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        LayoutResult.Status status = LayoutResult.Status.CONVERGED;
+        int iterations = 0;
+        double energy = 0d;
+        for (LayoutResult result : results) {
+            if (result.getStatus().compareTo(status) > 0) {
+                status = result.getStatus();
+            }
+            iterations += result.getIterations();
+            energy += result.getEnergy();
+        }
+        // components stopped by the budget count as cancelled on their own
+        if (budget.cancelled) {
+            status = LayoutResult.Status.CANCELLED;
+        } else if (budget.exhausted && status != LayoutResult.Status.TIME_LIMIT) {
+            status = LayoutResult.Status.ITERATION_LIMIT;
+        }
+        return new LayoutResult(pack(results, graph.getNodes().size()), status, iterations, energy,
+                (System.nanoTime() - start) / 1000000L);
+    }
+
+    /**
+     * Shelf packing: components sorted by height fill rows about as wide as the square root of their total area.
+     */
+    private static final Map<Node, Vector> pack(final List<LayoutResult> results, final int nodeCount) {
+        // bounds as minX, minY, maxX, maxY and the index of the result
+        final List<double[]> bounds = new ArrayList<double[]>(results.size());
+        double area = 0d;
+        double widest = 0d;
+        for (int r = 0; r < results.size(); r++) {
+            final double[] b = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                    Double.NEGATIVE_INFINITY, r };
+            for (Vector p : results.get(r).getPositions().values()) {
+                b[0] = Math.min(b[0], p.getX());
+                b[1] = Math.min(b[1], p.getY());
+                b[2] = Math.max(b[2], p.getX());
+                b[3] = Math.max(b[3], p.getY());
+            }
+            area += (b[2] - b[0] + SPACING) * (b[3] - b[1] + SPACING);
+            widest = Math.max(widest, b[2] - b[0]);
+            bounds.add(b);
+        }
+        Collections.sort(bounds, BY_HEIGHT);
+
+        final double rowWidth = Math.max(widest, Math.sqrt(area));
+        final Map<Node, Vector> positions = new HashMap<Node, Vector>(nodeCount * 2);
+        double x = 0d;
+        double y = 0d;
+        double shelfHeight = 0d;
+        double maxX = 0d;
+        for (double[] b : bounds) {
+            final double width = b[2] - b[0];
+            final double height = b[3] - b[1];
+            if (x > 0d && x + width > rowWidth) {
+                x = 0d;
+                y += shelfHeight + SPACING;
+                shelfHeight = 0d;
+            }
+            final double dx = x - b[0];
+            final double dy = y - b[1];
+            for (Map.Entry<Node, Vector> e : results.get((int) b[4]).getPositions().entrySet()) {
+                positions.put(e.getKey(), new Vector(e.getValue().getX() + dx, e.getValue().getY() + dy));
+            }
+            x += width + SPACING;
+            maxX = Math.max(maxX, x - SPACING);
+            shelfHeight = Math.max(shelfHeight, height);
+        }
+
+        // centre the packing on the origin
+        final double cx = maxX / 2d;
+        final double cy = (y + shelfHeight) / 2d;
+        for (Vector p : positions.values()) {
+            p.setX(p.getX() - cx);
+            p.setY(p.getY() - cy);
+        }
+        return positions;
+    }
+
+    private static final Graph subgraph(final Graph graph, final List<Node> component) {
+        final Graph subgraph = new Graph();
+        for (Node node : component) {
+            subgraph.addNode(node);
+        }
+        for (Node node : component) {
+            for (Edge edge : graph.getOutEdges(node)) {
+                subgraph.addEdge(edge);
+            }
+        }
+        return subgraph;
+    }
+
+    private ComponentLayout() {
+
+    }
+}
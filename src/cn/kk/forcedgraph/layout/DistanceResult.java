@@ -20,21 +20,38 @@
  */
 package cn.kk.forcedgraph.layout;
 
+import java.util.Comparator;
+
 import cn.kk.forcedgraph.graph.Node;
-import cn.kk.forcedgraph.graph.Point;
 
+/**
+ * A node found by a distance query, with a copy of the position it was found at, so the result stays valid while the
+ * layout goes on moving, removing and compacting its points.
+ * 
+ * @author x_kez
+ * 
+ */
 public class DistanceResult {
+    public static final Comparator<DistanceResult> BY_DISTANCE = new Comparator<DistanceResult>() {
+        @Override
+        public int compare(DistanceResult r1, DistanceResult r2) {
+            return Double.compare(r1.distance, r2.distance);
+        }
+    };
+
     private Node node;
-    private Point point;
+    private double x;
+    private double y;
     private double distance = -1;
 
     public DistanceResult() {
     }
 
-    public DistanceResult(Node node, Point point, double distance) {
+    public DistanceResult(Node node, double x, double y, double distance) {
         super();
         this.node = node;
-        this.point = point;
+        this.x = x;
+        this.y = y;
         this.distance = distance;
     }
 
@@ -53,15 +70,23 @@ public class DistanceResult {
     }
 
     /**
-     * @return the point
+     * @return the x coordinate of the node when it was found
+     */
+    public final double getX() {
+        return this.x;
+    }
+
+    /**
+     * @return the y coordinate of the node when it was found
      */
-    public final Point getPoint() {
-        return point;
+    public final double getY() {
+        return this.y;
     }
 
-    public void update(final Node n, final Point p, final double d) {
+    public void update(final Node n, final double x, final double y, final double d) {
         this.node = n;
-        this.point = p;
+        this.x = x;
+        this.y = y;
         this.distance = d;
     }
 }
@@ -20,10 +20,24 @@
  */
 package cn.kk.forcedgraph.layout;
 
-import java.awt.Graphics2D;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import cn.kk.forcedgraph.bean.EdgeData;
 import cn.kk.forcedgraph.bean.NodeData;
@@ -35,11 +49,15 @@ import cn.kk.forcedgraph.graph.Edge;
 import cn.kk.forcedgraph.graph.Graph;
 import cn.kk.forcedgraph.graph.Node;
 import cn.kk.forcedgraph.graph.Point;
+import cn.kk.forcedgraph.graph.PointStore;
 import cn.kk.forcedgraph.graph.Spring;
+import cn.kk.forcedgraph.graph.SpringStore;
 import cn.kk.forcedgraph.graph.Vector;
+import cn.kk.forcedgraph.listener.EdgeAddedListener;
 import cn.kk.forcedgraph.listener.EdgeRemovedListener;
 import cn.kk.forcedgraph.listener.GraphFinishedListener;
 import cn.kk.forcedgraph.listener.LayoutRenderListener;
+import cn.kk.forcedgraph.listener.NodeAddedListener;
 import cn.kk.forcedgraph.listener.NodeRemovedListener;
 
 /**
@@ -48,7 +66,42 @@ import cn.kk.forcedgraph.listener.NodeRemovedListener;
  * @author x_kez
  * 
  */
-public final class ForceDirectedLayout implements NodeRemovedListener, EdgeRemovedListener {
+public final class ForceDirectedLayout implements NodeAddedListener, NodeRemovedListener, EdgeAddedListener,
+        EdgeRemovedListener {
+    // total kinetic energy below which a simulation counts as settled
+    public static final double ENERGY_THRESHOLD = 0.01;
+    // numbers the MBeans of the layouts of one JVM
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+    // spread of new nodes around the barycenter of their neighbours
+    private static final double PLACEMENT_JITTER = 0.5;
+    // a point falls asleep after resting this many steps below the kinetic energy and within the distance
+    private static final int SLEEP_STEPS = 25;
+    private static final double SLEEP_ENERGY = ENERGY_THRESHOLD;
+    private static final double SLEEP_DISTANCE = 0.05;
+    // a sleeping point wakes up when a spring neighbour moves with more kinetic energy than this
+    private static final double WAKE_ENERGY = SLEEP_ENERGY * 10.0;
+    // it also wakes up when a moving point repels it with more acceleration than this
+    private static final double WAKE_FORCE = 50.0;
+    // adaptive time step: bounds of the scale, its change per adjustment and the calm steps needed to grow it
+    private static final double MIN_TIME_SCALE = 0.1;
+    private static final double MAX_TIME_SCALE = 10.0;
+    private static final double COOLING = 0.9;
+    private static final int PROGRESS_STEPS = 5;
+    // share of the velocity correlation that may point backwards before a step counts as oscillating
+    private static final double OSCILLATION = 0.1;
+    // largest distance a point may travel in one step before the time step is cut
+    private static final double MAX_DISPLACEMENT = 10.0;
+
+    /**
+     * A queued change of the graph, see {@link ForceDirectedLayout#drainMutations()}.
+     */
+    private abstract class Mutation {
+        /**
+         * @return false if the mutation no longer applies and was dropped
+         */
+        abstract boolean apply();
+    }
+
     private final Graph graph;
     // spring stiffness constant
     private final double stiffness;
@@ -57,8 +110,58 @@ public final class ForceDirectedLayout implements NodeRemovedListener, EdgeRemov
     // velocity damping factor
     private final double damping;
     private final Map<Node, Point> nodePoints;
+    private final PointStore points;
     private final Map<Edge, Spring> edgeSprings;
+    private final SpringStore springs;
     private final GraphRenderer renderer;
+    private final QuadTree quadTree;
+    // Barnes-Hut repulsion and its opening angle, 0 is exact
+    private boolean barnesHut;
+    private double theta = 0.8;
+    private ParallelSimulation parallel;
+    // picking index, rebuilt into the spare instance and swapped after every step
+    private volatile SpatialIndex spatialIndex;
+    private SpatialIndex spareIndex;
+    private volatile boolean spatialIndexDirty = true;
+    // positions published for painting, swapped like the spatial index
+    private volatile LayoutSnapshot snapshot;
+    private LayoutSnapshot spareSnapshot;
+    private volatile boolean snapshotDirty = true;
+    // counts changes of the points and springs, snapshots copy nodes and edges only when it moved on
+    private long topology;
+    // incremental mode: settled points stay frozen, mutations thaw the k-hop neighbourhood of the touched nodes
+    private boolean incremental;
+    private int neighbourhood = 2;
+    private final Set<Node> touchedNodes = new LinkedHashSet<Node>();
+    private final Set<Node> unplacedNodes = new HashSet<Node>();
+    // jitters placed nodes apart, see setSeed
+    private final Random random = new Random();
+    // settled points go to sleep: they stop integrating and only act as static force sources
+    private boolean sleepEnabled;
+    // finds the sleeping points near moving ones, with the store indices it found
+    private final SpatialIndex wakeIndex = new SpatialIndex();
+    private int[] nearby = new int[16];
+    // adaptive integration scales the time steps after every step, see setAdaptive
+    private boolean adaptive;
+    private double timeScale = 1d;
+    private int progress;
+    // velocities after the previous step, to tell oscillating points from moving ones
+    private double[] lastVx = new double[0];
+    private double[] lastVy = new double[0];
+    private long stepCount;
+    // tick timings, null unless enabled so the simulation does not even read the clock
+    private volatile LayoutMetrics metrics;
+    private ObjectName metricsName;
+    // mutations queued from any thread, applied by the simulation thread between ticks
+    private final Queue<Mutation> mutations = new ConcurrentLinkedQueue<Mutation>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final Runnable drainTask = new Runnable() {
+        @Override
+        public void run() {
+            ForceDirectedLayout.this.drainScheduled.set(false);
+            drainMutations();
+        }
+    };
 
     public ForceDirectedLayout() {
         this(new Graph());
@@ -74,15 +177,122 @@ public final class ForceDirectedLayout implements NodeRemovedListener, EdgeRemov
 
     public ForceDirectedLayout(final Graph graph, final Map<Node, Point> nodePoints,
             final Map<Edge, Spring> edgeSprings, final double stiffness, final double repulsion, final double damping) {
+        this(graph, nodePoints, edgeSprings, stiffness, repulsion, damping, true);
+    }
+
+    private ForceDirectedLayout(final Graph graph, final Map<Node, Point> nodePoints,
+            final Map<Edge, Spring> edgeSprings, final double stiffness, final double repulsion, final double damping,
+            final boolean attached) {
         this.graph = graph;
         this.stiffness = stiffness;
         this.repulsion = repulsion;
         this.damping = damping;
         this.nodePoints = nodePoints;
         this.edgeSprings = edgeSprings;
-        this.graph.setNodeRemovedListener(this);
-        this.graph.setEdgeRemovedListener(this);
+        this.points = new PointStore(Math.max(16, graph.getNodes().size()));
+        this.springs = new SpringStore(Math.max(16, graph.getEdges().size()));
+        for (Node n : graph.getNodes()) {
+            getPoint(n);
+        }
+        for (Edge e : graph.getEdges()) {
+            getSpring(e);
+        }
+        if (attached) {
+            this.graph.setNodeAddedListener(this);
+            this.graph.setNodeRemovedListener(this);
+            this.graph.setEdgeAddedListener(this);
+            this.graph.setEdgeRemovedListener(this);
+        }
         this.renderer = new GraphRenderer(this);
+        this.quadTree = new QuadTree();
+        this.spatialIndex = new SpatialIndex();
+        this.spareIndex = new SpatialIndex();
+        this.snapshot = new LayoutSnapshot();
+        this.spareSnapshot = new LayoutSnapshot();
+    }
+
+    /**
+     * @return the last published snapshot of the positions, to be released by the caller when done
+     */
+    public final LayoutSnapshot acquireSnapshot() {
+        if (this.snapshotDirty) {
+            synchronized (this) {
+                if (this.snapshotDirty) {
+                    publishSnapshot();
+                }
+            }
+        }
+        while (true) {
+            final LayoutSnapshot snapshot = this.snapshot;
+            snapshot.acquire();
+            if (snapshot == this.snapshot) {
+                return snapshot;
+            }
+            // swapped out while acquiring, it may be overwritten any moment
+            snapshot.release();
+        }
+    }
+
+    private final SpatialIndex acquireSpatialIndex() {
+        if (this.spatialIndexDirty) {
+            synchronized (this) {
+                if (this.spatialIndexDirty) {
+                    updateSpatialIndex();
+                }
+            }
+        }
+        while (true) {
+            final SpatialIndex index = this.spatialIndex;
+            index.acquire();
+            if (index == this.spatialIndex) {
+                return index;
+            }
+            // swapped out while acquiring, it may be rebuilt any moment
+            index.release();
+        }
+    }
+
+    /**
+     * Adaptive cooling after Hu: the time step grows after a run of calm steps and shrinks as soon as the layout
+     * oscillates. Kinetic energy is a poor signal here, it rises whenever a branch unfolds, so a step counts as
+     * oscillating when too many points reversed their direction of travel. The step is also cut whenever a point would
+     * travel too far.
+     */
+    private final void adaptTimeStep(final double positionTimeStep) {
+        final int size = this.points.size();
+        final double[] vx = this.points.getVx();
+        final double[] vy = this.points.getVy();
+        if (this.lastVx.length < size) {
+            this.lastVx = new double[vx.length];
+            this.lastVy = new double[vy.length];
+        }
+        double reversed = 0d;
+        double total = 0d;
+        double maxSpeed = 0d;
+        for (int i = 0; i < size; i++) {
+            final double dot = vx[i] * this.lastVx[i] + vy[i] * this.lastVy[i];
+            final double speed = vx[i] * vx[i] + vy[i] * vy[i];
+            total += Math.abs(dot);
+            if (dot < 0d) {
+                reversed -= dot;
+            }
+            maxSpeed = Math.max(maxSpeed, speed);
+            this.lastVx[i] = vx[i];
+            this.lastVy[i] = vy[i];
+        }
+        if (reversed <= total * OSCILLATION) {
+            if (++this.progress >= PROGRESS_STEPS) {
+                this.progress = 0;
+                this.timeScale = Math.min(MAX_TIME_SCALE, this.timeScale / COOLING);
+            }
+        } else {
+            this.progress = 0;
+            this.timeScale = Math.max(MIN_TIME_SCALE, this.timeScale * COOLING);
+        }
+        final double displacement = Math.sqrt(maxSpeed) * positionTimeStep;
+        if (displacement > MAX_DISPLACEMENT) {
+            this.timeScale = Math.max(MIN_TIME_SCALE, this.timeScale * MAX_DISPLACEMENT / displacement);
+        }
     }
 
     public synchronized Edge addEdge(Node node, Node otherNode, EdgeData edgeData) {
@@ -94,43 +304,225 @@ public final class ForceDirectedLayout implements NodeRemovedListener, EdgeRemov
     }
 
     public void applyCoulombsLaw() {
-        for (Node n1 : this.graph.getNodes()) {
-            final Point p1 = getPoint(n1);
-            for (Node n2 : this.graph.getNodes()) {
-                final Point p2 = getPoint(n2);
-                if (p1 != p2) {
-                    final Vector d = Vector.subtract(p1.getPosition(), p2.getPosition());
+        if (this.barnesHut) {
+            applyCoulombsLawBarnesHut();
+            return;
+        }
+        final int size = this.points.size();
+        final double[] x = this.points.getX();
+        final double[] y = this.points.getY();
+        final double[] fx = this.points.getFx();
+        final double[] fy = this.points.getFy();
+        final double[] mass = this.points.getMass();
+        final boolean[] inert = this.points.getInert();
+        // every pair once, each end point receives the full force
+        for (int i = 0; i < size; i++) {
+            final double x1 = x[i];
+            final double y1 = y[i];
+            final double m1 = inert[i] ? 0d : mass[i];
+            for (int j = i + 1; j < size; j++) {
+                final double m2 = inert[j] ? 0d : mass[j];
+                if (m1 == 0d && m2 == 0d) {
+                    continue;
+                }
+                final double dx = x1 - x[j];
+                final double dy = y1 - y[j];
+                final double magnitude = Math.sqrt(dx * dx + dy * dy);
+                if (magnitude != 0d) {
                     // avoid massive forces at small distances (and divide by zero)
-                    final double distance = d.magnitude() + 0.1;
+                    final double distance = magnitude + 0.1;
+                    final double f = this.repulsion / (magnitude * distance * distance);
                     // apply force to each end point
-                    d.normalize().multiply(this.repulsion).divide(distance * distance);
-                    p1.applyForce(Vector.multiply(d, 0.5));
-                    p2.applyForce(d.multiply(-0.5));
+                    if (m1 != 0d) {
+                        fx[i] += dx * f / m1;
+                        fy[i] += dy * f / m1;
+                    }
+                    if (m2 != 0d) {
+                        fx[j] -= dx * f / m2;
+                        fy[j] -= dy * f / m2;
+                    }
                 }
             }
         }
     }
 
+    /**
+     * Barnes-Hut approximation of {@link #applyCoulombsLaw()}, O(n log n) per step.
+     */
+    private final void applyCoulombsLawBarnesHut() {
+        buildQuadTree();
+        final int size = this.points.size();
+        final double[] x = this.points.getX();
+        final double[] y = this.points.getY();
+        final double[] fx = this.points.getFx();
+        final double[] fy = this.points.getFy();
+        final double[] mass = this.points.getMass();
+        final boolean[] inert = this.points.getInert();
+        for (int i = 0; i < size; i++) {
+            if (inert[i]) {
+                continue;
+            }
+            final double[] f = this.quadTree.force(i, x[i], y[i], this.theta, this.repulsion);
+            if (mass[i] != 0d) {
+                fx[i] += f[0] / mass[i];
+                fy[i] += f[1] / mass[i];
+            }
+        }
+    }
+
     public void applyHookesLaw() {
-        for (Edge e : this.graph.getEdges()) {
-            final Spring spring = getSpring(e);
-            final Vector d = Vector.subtract(spring.getPoint2().getPosition(), spring.getPoint1().getPosition());
-            final double displacement = spring.getLength() - d.magnitude();
-            // apply force to each end point
-            d.normalize().multiply(spring.getSpringStiffness() * displacement);
-            spring.getPoint1().applyForce(Vector.multiply(d, -0.5));
-            spring.getPoint2().applyForce(d.multiply(0.5));
+        final int size = this.springs.size();
+        final double[] x = this.points.getX();
+        final double[] y = this.points.getY();
+        final double[] fx = this.points.getFx();
+        final double[] fy = this.points.getFy();
+        final double[] mass = this.points.getMass();
+        final boolean[] inert = this.points.getInert();
+        for (int s = 0; s < size; s++) {
+            final Spring spring = this.springs.get(s);
+            final int i = spring.getPoint1().getIndex();
+            final int j = spring.getPoint2().getIndex();
+            if (inert[i] && inert[j]) {
+                continue;
+            }
+            final double dx = x[j] - x[i];
+            final double dy = y[j] - y[i];
+            final double magnitude = Math.sqrt(dx * dx + dy * dy);
+            if (magnitude != 0d) {
+                final double displacement = spring.getLength() - magnitude;
+                final double f = 0.5 * spring.getSpringStiffness() * displacement / magnitude;
+                // apply force to each end point
+                if (mass[i] != 0d && !inert[i]) {
+                    fx[i] -= dx * f / mass[i];
+                    fy[i] -= dy * f / mass[i];
+                }
+                if (mass[j] != 0d && !inert[j]) {
+                    fx[j] += dx * f / mass[j];
+                    fy[j] += dy * f / mass[j];
+                }
+            }
         }
     }
 
     public void attractToCentre() {
-        for (Node n : this.graph.getNodes()) {
-            final Point p = getPoint(n);
-            final Vector direction = Vector.multiply(p.getPosition(), -1.0);
-            p.applyForce(direction.multiply(this.repulsion / 50.0));
+        final int size = this.points.size();
+        final double[] x = this.points.getX();
+        final double[] y = this.points.getY();
+        final double[] fx = this.points.getFx();
+        final double[] fy = this.points.getFy();
+        final double[] mass = this.points.getMass();
+        final boolean[] inert = this.points.getInert();
+        final double f = -this.repulsion / 50.0;
+        for (int i = 0; i < size; i++) {
+            if (mass[i] != 0d && !inert[i]) {
+                fx[i] += x[i] * f / mass[i];
+                fy[i] += y[i] * f / mass[i];
+            }
+        }
+    }
+
+    /**
+     * Applies the mutations to the graph in one batch while holding the layout, listeners are notified once.
+     */
+    public synchronized void batch(final Runnable mutations) {
+        this.graph.batch(mutations);
+    }
+
+    /**
+     * Rebuilds the quadtree over the current point positions, body indices equal point indices.
+     */
+    final void buildQuadTree() {
+        final int size = this.points.size();
+        final double[] x = this.points.getX();
+        final double[] y = this.points.getY();
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+        this.quadTree.clear(minX, minY, maxX, maxY);
+        for (int i = 0; i < size; i++) {
+            this.quadTree.insert(x[i], y[i]);
         }
     }
 
+    /**
+     * Stops the simulation, detaches the layout from its graph and releases all points, springs and worker threads.
+     * The graph itself is left untouched.
+     */
+    public synchronized void close() {
+        stopRendering();
+        setParallelism(1);
+        setMetricsEnabled(false);
+        if (this.graph.getNodeAddedListener() == this) {
+            this.graph.setNodeAddedListener(null);
+        }
+        if (this.graph.getNodeRemovedListener() == this) {
+            this.graph.setNodeRemovedListener(null);
+        }
+        if (this.graph.getEdgeAddedListener() == this) {
+            this.graph.setEdgeAddedListener(null);
+        }
+        if (this.graph.getEdgeRemovedListener() == this) {
+            this.graph.setEdgeRemovedListener(null);
+        }
+        this.nodePoints.clear();
+        this.edgeSprings.clear();
+        this.points.clear();
+        this.springs.clear();
+        this.spatialIndexDirty = true;
+        topologyChanged();
+    }
+
+    /**
+     * @return a layout of the graph that does not listen to its changes, configured for a headless run
+     */
+    static ForceDirectedLayout detached(final Graph graph, final LayoutOptions options) {
+        final ForceDirectedLayout layout = new ForceDirectedLayout(graph, new HashMap<Node, Point>(),
+                new HashMap<Edge, Spring>(), options.getStiffness(), options.getRepulsion(), options.getDamping(),
+                false);
+        layout.setBarnesHut(options.isBarnesHut());
+        layout.setTheta(options.getTheta());
+        layout.setParallelism(options.getParallelism());
+        layout.setSleepEnabled(options.isSleepEnabled());
+        layout.setAdaptive(options.isAdaptive());
+        if (options.getSeed() != null) {
+            layout.setSeed(options.getSeed().longValue());
+        }
+        return layout;
+    }
+
+    /**
+     * Applies the queued mutations in one batch. Called by the renderer before every tick, and soon after a mutation
+     * is queued on the renderer's thread in case it is not running. An edge is dropped if one of its nodes was
+     * removed before it got added.
+     * 
+     * @return the number of mutations applied, without the dropped edges
+     */
+    public synchronized int drainMutations() {
+        if (this.mutations.isEmpty()) {
+            return 0;
+        }
+        final int[] applied = new int[1];
+        this.graph.batch(new Runnable() {
+            @Override
+            public void run() {
+                Mutation mutation;
+                while ((mutation = ForceDirectedLayout.this.mutations.poll()) != null) {
+                    if (mutation.apply()) {
+                        applied[0]++;
+                    }
+                }
+            }
+        });
+        return applied[0];
+    }
+
     public void eachEdge(EdgeCallback callback) {
         final ForceDirectedLayout layout = this;
         for (Edge e : this.graph.getEdges()) {
@@ -152,36 +544,126 @@ public final class ForceDirectedLayout implements NodeRemovedListener, EdgeRemov
         }
     }
 
+    /**
+     * Queues the mutation without waiting for the layout, see {@link #drainMutations()}.
+     */
+    private final void enqueue(final Mutation mutation) {
+        this.mutations.add(mutation);
+        if (this.drainScheduled.compareAndSet(false, true)) {
+            GraphRenderer.SCHEDULER.execute(this.drainTask);
+        }
+    }
+
+    /**
+     * Queues a new edge, safe to call from any thread without blocking. The edge is added to the graph by the
+     * simulation thread before its next tick, after all mutations queued earlier.
+     * 
+     * @return the edge, with its id assigned already
+     */
+    public Edge enqueueAddEdge(final Node node, final Node otherNode, final EdgeData edgeData) {
+        final Edge edge = this.graph.createEdge(node, otherNode, edgeData);
+        enqueue(new Mutation() {
+            @Override
+            boolean apply() {
+                final Set<Node> nodes = ForceDirectedLayout.this.graph.getNodes();
+                if (!nodes.contains(edge.getSource()) || !nodes.contains(edge.getTarget())) {
+                    return false;
+                }
+                ForceDirectedLayout.this.graph.addEdge(edge);
+                return true;
+            }
+        });
+        return edge;
+    }
+
+    /**
+     * Queues a new node, see {@link #enqueueAddEdge(Node, Node, EdgeData)}.
+     * 
+     * @return the node, with its id assigned already
+     */
+    public Node enqueueAddNode(final NodeData nodeData) {
+        final Node node = this.graph.createNode(nodeData);
+        enqueue(new Mutation() {
+            @Override
+            boolean apply() {
+                ForceDirectedLayout.this.graph.addNode(node);
+                return true;
+            }
+        });
+        return node;
+    }
+
+    /**
+     * Queues the removal of the edge, see {@link #enqueueAddEdge(Node, Node, EdgeData)}.
+     */
+    public void enqueueRemoveEdge(final Edge edge) {
+        enqueue(new Mutation() {
+            @Override
+            boolean apply() {
+                ForceDirectedLayout.this.graph.removeEdge(edge);
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Queues the removal of the node and its edges, see {@link #enqueueAddEdge(Node, Node, EdgeData)}.
+     */
+    public void enqueueRemoveNode(final Node node) {
+        enqueue(new Mutation() {
+            @Override
+            boolean apply() {
+                ForceDirectedLayout.this.graph.removeNode(node);
+                return true;
+            }
+        });
+    }
+
     /**
      * 
      * @return returns [bottomleft, topright]
      */
     public BoundingBox getBoundingBox() {
-        final Vector bottomLeft = new Vector(-2, -2);
-        final Vector topRight = new Vector(2, 2);
+        return getBoundingBox(new BoundingBox(new Vector(0d, 0d), new Vector(0d, 0d)));
+    }
 
-        double tmp;
-        for (Node n : this.graph.getNodes()) {
-            final Point p = getPoint(n);
-            tmp = p.getPosition().getX();
-            if (tmp < bottomLeft.getX()) {
-                bottomLeft.setX(tmp);
+    /**
+     * Like {@link #getBoundingBox()} but writes into the given box instead of allocating one.
+     * 
+     * @return bb
+     */
+    public BoundingBox getBoundingBox(final BoundingBox bb) {
+        final int size = this.points.size();
+        final double[] x = this.points.getX();
+        final double[] y = this.points.getY();
+        double minX = -2;
+        double minY = -2;
+        double maxX = 2;
+        double maxY = 2;
+        for (int i = 0; i < size; i++) {
+            if (x[i] < minX) {
+                minX = x[i];
             }
-            if (tmp > topRight.getX()) {
-                topRight.setX(tmp);
+            if (x[i] > maxX) {
+                maxX = x[i];
             }
-            tmp = p.getPosition().getY();
-            if (tmp < bottomLeft.getY()) {
-                bottomLeft.setY(tmp);
+            if (y[i] < minY) {
+                minY = y[i];
             }
-            if (tmp > topRight.getY()) {
-                topRight.setY(tmp);
+            if (y[i] > maxY) {
+                maxY = y[i];
             }
         }
 
-        final Vector padding = Vector.subtract(topRight, bottomLeft).multiply(0.07); // ~5% padding
+        // ~5% padding
+        final double paddingX = (maxX - minX) * 0.07;
+        final double paddingY = (maxY - minY) * 0.07;
 
-        return new BoundingBox(bottomLeft.substract(padding), topRight.add(padding));
+        bb.getBottomLeft().setX(minX - paddingX);
+        bb.getBottomLeft().setY(minY - paddingY);
+        bb.getTopRight().setX(maxX + paddingX);
+        bb.getTopRight().setY(maxY + paddingY);
+        return bb;
     }
 
     /**
@@ -198,6 +680,13 @@ public final class ForceDirectedLayout implements NodeRemovedListener, EdgeRemov
         return this.edgeSprings;
     }
 
+    /**
+     * @return milliseconds of simulation per rendered frame
+     */
+    public final long getFrameBudget() {
+        return this.renderer.getFrameBudget();
+    }
+
     /**
      * @return the graph
      */
@@ -205,6 +694,20 @@ public final class ForceDirectedLayout implements NodeRemovedListener, EdgeRemov
         return this.graph;
     }
 
+    /**
+     * @return the metrics of the ticks, null unless enabled
+     */
+    public final LayoutMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * @return the number of hops around a mutation that is relaxed in incremental mode
+     */
+    public final int getNeighbourhood() {
+        return this.neighbourhood;
+    }
+
     /**
      * @return the nodePoints
      */
@@ -212,15 +715,45 @@ public final class ForceDirectedLayout implements NodeRemovedListener, EdgeRemov
         return this.nodePoints;
     }
 
+    /**
+     * @return the number of worker threads of a step, 1 if steps run on the calling thread
+     */
+    public final int getParallelism() {
+        return this.parallel == null ? 1 : this.parallel.getParallelism();
+    }
+
     public Point getPoint(final Node node) {
         Point point = this.nodePoints.get(node);
         if (point == null) {
-            point = new Point(Vector.random(), node.getData().getMass());
+            point = this.points.add(node, Vector.random(), node.getData().getMass());
             this.nodePoints.put(node, point);
+            topologyChanged();
         }
         return point;
     }
 
+    /**
+     * @return the simulation state of all points
+     */
+    public final PointStore getPoints() {
+        return this.points;
+    }
+
+    /**
+     * @return a snapshot of the current position of every node
+     */
+    public Map<Node, Vector> getPositions() {
+        final Map<Node, Vector> positions = new HashMap<Node, Vector>(this.points.size() * 2);
+        for (int i = 0; i < this.points.size(); i++) {
+            positions.put(this.points.getNode(i), new Vector(this.points.getX()[i], this.points.getY()[i]));
+        }
+        return positions;
+    }
+
+    final QuadTree getQuadTree() {
+        return this.quadTree;
+    }
+
     /**
      * @return the repulsion
      */
@@ -234,7 +767,7 @@ public final class ForceDirectedLayout implements NodeRemovedListener, EdgeRemov
             Spring existingSpring = null;
             final List<Edge> from = this.graph.getEdges(edge.getSource(), edge.getTarget());
             for (Edge e : from) {
-                if (null != (existingSpring = this.edgeSprings.get(edge))) {
+                if (null != (existingSpring = this.edgeSprings.get(e))) {
                     break;
                 }
             }
@@ -243,7 +776,7 @@ public final class ForceDirectedLayout implements NodeRemovedListener, EdgeRemov
             } else {
                 final List<Edge> to = this.graph.getEdges(edge.getTarget(), edge.getSource());
                 for (Edge e : to) {
-                    if (null != (existingSpring = this.edgeSprings.get(edge))) {
+                    if (null != (existingSpring = this.edgeSprings.get(e))) {
                         break;
                     }
                 }
@@ -251,15 +784,31 @@ public final class ForceDirectedLayout implements NodeRemovedListener, EdgeRemov
                     spring = new Spring(existingSpring.getPoint2(), existingSpring.getPoint1(), 0d, 0d);
                 } else {
                     spring = new Spring(getPoint(edge.getSource()), getPoint(edge.getTarget()), edge.getData()
-                            .getLength(),
-                            this.stiffness);
+                            .getLength(), this.stiffness * edge.getData().getStiffness());
+                    // parallel edges get force-free placeholders that stay out of the store the force loops walk
+                    this.springs.add(spring);
                 }
             }
             this.edgeSprings.put(edge, spring);
+            topologyChanged();
         }
         return spring;
     }
 
+    /**
+     * @return the springs
+     */
+    public final SpringStore getSprings() {
+        return this.springs;
+    }
+
+    /**
+     * @return the number of steps since the layout was created
+     */
+    public final long getStepCount() {
+        return this.stepCount;
+    }
+
     /**
      * @return the stiffness
      */
@@ -268,47 +817,232 @@ public final class ForceDirectedLayout implements NodeRemovedListener, EdgeRemov
     }
 
     public double getTotalEnergy() {
+        final int size = this.points.size();
+        final double[] vx = this.points.getVx();
+        final double[] vy = this.points.getVy();
+        final double[] mass = this.points.getMass();
         double energy = 0d;
-        for (Node n : this.graph.getNodes()) {
-            final Point p = getPoint(n);
-            final double speed = p.getVelocity().magnitude();
-            energy += 0.5 * p.getMass() * speed * speed;
+        for (int i = 0; i < size; i++) {
+            energy += 0.5 * mass[i] * (vx[i] * vx[i] + vy[i] * vy[i]);
         }
         return energy;
     }
 
+    /**
+     * @return the theta
+     */
+    public final double getTheta() {
+        return this.theta;
+    }
+
+    /**
+     * @return the factor the time steps are scaled with, 1 unless adaptive
+     */
+    public final double getTimeScale() {
+        return this.timeScale;
+    }
+
+    /**
+     * @return the adaptive
+     */
+    public final boolean isAdaptive() {
+        return this.adaptive;
+    }
+
+    /**
+     * @return the barnesHut
+     */
+    public final boolean isBarnesHut() {
+        return this.barnesHut;
+    }
+
+    /**
+     * @return the incremental
+     */
+    public final boolean isIncremental() {
+        return this.incremental;
+    }
+
+    public final boolean isMetricsEnabled() {
+        return this.metrics != null;
+    }
+
     public final boolean isRendering() {
         return this.renderer.isRendering();
     }
 
-    public DistanceResult nearest(final Vector position) {
-        DistanceResult min = new DistanceResult();
-        for (Node n : this.graph.getNodes()) {
-            final Point p = getPoint(n);
-            final double distance = Vector.subtract(p.getPosition(), position).magnitude();
-            if (min.getDistance() == -1 || distance < min.getDistance()) {
-                min.update(n, p, distance);
+    /**
+     * @return the sleepEnabled
+     */
+    public final boolean isSleepEnabled() {
+        return this.sleepEnabled;
+    }
+
+    /**
+     * Lays out the graph synchronously on the calling thread, without a renderer, until the total energy drops below
+     * the threshold or a budget is exhausted. The graph's listeners are left untouched and it must not be modified
+     * while the layout runs. Interrupting the calling thread cancels the layout.
+     */
+    public static LayoutResult layout(final Graph graph, final LayoutOptions options) {
+        if (options.isComponents()) {
+            return ComponentLayout.layout(graph, options);
+        }
+        if (options.isMultilevel()) {
+            return MultilevelLayout.layout(graph, options);
+        }
+        final LayoutRun run = new LayoutRun(options);
+        final ForceDirectedLayout layout = detached(graph, options);
+        try {
+            if (options.getSeed() != null) {
+                final Random random = new Random(options.getSeed().longValue());
+                final PointStore store = layout.getPoints();
+                for (int i = 0; i < store.size(); i++) {
+                    store.getPoint(i).setPosition(10.0 * (random.nextDouble() - 0.5),
+                            10.0 * (random.nextDouble() - 0.5));
+                }
             }
+            run.relax(layout, Integer.MAX_VALUE);
+            return run.result(layout.getPositions());
+        } finally {
+            layout.close();
+        }
+    }
+
+    public DistanceResult nearest(final Vector position) {
+        final SpatialIndex index = acquireSpatialIndex();
+        try {
+            return index.nearest(position.getX(), position.getY());
+        } finally {
+            index.release();
+        }
+    }
+
+    /**
+     * @return up to k nodes closest to the position, closest first
+     */
+    public List<DistanceResult> nearest(final Vector position, final int k) {
+        final SpatialIndex index = acquireSpatialIndex();
+        try {
+            return index.nearest(position.getX(), position.getY(), k);
+        } finally {
+            index.release();
+        }
+    }
+
+    @Override
+    public void onAdded(Edge edge) {
+        getSpring(edge);
+        wake(edge);
+        if (this.incremental) {
+            this.touchedNodes.add(edge.getSource());
+            this.touchedNodes.add(edge.getTarget());
+        }
+    }
+
+    @Override
+    public void onAdded(Node node) {
+        getPoint(node);
+        this.spatialIndexDirty = true;
+        if (this.incremental) {
+            this.touchedNodes.add(node);
+            this.unplacedNodes.add(node);
         }
-        return min;
     }
 
     @Override
     public void onRemoved(Edge edge) {
+        wake(edge);
+        if (this.incremental) {
+            this.touchedNodes.add(edge.getSource());
+            this.touchedNodes.add(edge.getTarget());
+        }
         final Spring spring = this.edgeSprings.remove(edge);
         if (spring != null) {
-            Spring.remove(spring);
+            this.springs.remove(spring);
+            topologyChanged();
+            if (spring.getSpringStiffness() != 0d) {
+                // parallel edges share one real spring, hand it over to a remaining one
+                if (!promoteSpring(this.graph.getEdges(edge.getSource(), edge.getTarget()))) {
+                    promoteSpring(this.graph.getEdges(edge.getTarget(), edge.getSource()));
+                }
+            }
         }
     }
 
     @Override
     public void onRemoved(Node node) {
+        this.touchedNodes.remove(node);
+        this.unplacedNodes.remove(node);
         final Point point = this.nodePoints.remove(node);
         if (point != null) {
-            Point.remove(point);
+            this.points.remove(point);
+            this.spatialIndexDirty = true;
+            topologyChanged();
         }
     }
 
+    /**
+     * Moves new nodes to the barycenter of their already placed neighbours, chains of new nodes are placed outwards.
+     */
+    private final void placeNewNodes() {
+        final Random random = this.random;
+        boolean progress = true;
+        while (progress && !this.unplacedNodes.isEmpty()) {
+            progress = false;
+            for (Iterator<Node> it = this.unplacedNodes.iterator(); it.hasNext();) {
+                final Node node = it.next();
+                double x = 0d;
+                double y = 0d;
+                int placed = 0;
+                for (Node neighbour : this.graph.getNeighbors(node)) {
+                    final Point point = this.nodePoints.get(neighbour);
+                    if (point != null && !this.unplacedNodes.contains(neighbour)) {
+                        x += point.getX();
+                        y += point.getY();
+                        placed++;
+                    }
+                }
+                if (placed != 0) {
+                    getPoint(node).setPosition(x / placed + PLACEMENT_JITTER * (random.nextDouble() - 0.5), y
+                            / placed + PLACEMENT_JITTER * (random.nextDouble() - 0.5));
+                    it.remove();
+                    progress = true;
+                }
+            }
+        }
+        // new nodes without placed neighbours keep their random position until an edge connects them
+    }
+
+    private final boolean promoteSpring(final List<Edge> parallelEdges) {
+        for (Edge e : parallelEdges) {
+            final Spring old = this.edgeSprings.get(e);
+            if (old != null) {
+                final Spring spring = new Spring(getPoint(e.getSource()), getPoint(e.getTarget()), e.getData()
+                        .getLength(), this.stiffness * e.getData().getStiffness());
+                this.springs.add(spring);
+                this.edgeSprings.put(e, spring);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copies the current positions into the spare snapshot and publishes it. Skipped while a reader still holds the
+     * spare snapshot, the next tick or reader catches up.
+     */
+    public synchronized void publishSnapshot() {
+        if (this.spareSnapshot.isInUse()) {
+            this.snapshotDirty = true;
+            return;
+        }
+        this.spareSnapshot.build(this, this.topology);
+        final LayoutSnapshot built = this.spareSnapshot;
+        this.spareSnapshot = this.snapshot;
+        this.snapshot = built;
+        this.snapshotDirty = false;
+    }
+
     public synchronized void removeEdge(Edge edge) {
         this.graph.removeEdge(edge);
     }
@@ -317,28 +1051,389 @@ public final class ForceDirectedLayout implements NodeRemovedListener, EdgeRemov
         this.graph.removeNode(node);
     }
 
+    /**
+     * Switches between the fixed time steps passed to {@link #step(double, double)} and adaptive ones, which are
+     * scaled up while the layout makes progress and cooled down when it oscillates.
+     */
+    public final synchronized void setAdaptive(final boolean adaptive) {
+        this.adaptive = adaptive;
+        this.timeScale = 1d;
+        this.progress = 0;
+    }
+
+    /**
+     * @param barnesHut
+     *            approximate repulsion with a quadtree instead of comparing every pair of nodes
+     */
+    public final void setBarnesHut(boolean barnesHut) {
+        this.barnesHut = barnesHut;
+    }
+
+    /**
+     * @param frameBudget
+     *            milliseconds of simulation per rendered frame, see {@link GraphRenderer#setFrameBudget(long)}
+     */
+    public final void setFrameBudget(final long frameBudget) {
+        this.renderer.setFrameBudget(frameBudget);
+    }
+
+    /**
+     * In incremental mode all settled points are frozen. Every mutation places new nodes next to their neighbours and
+     * thaws only the nodes within {@link #getNeighbourhood()} hops of it, until their energy drops below
+     * {@link #ENERGY_THRESHOLD}.
+     */
+    public final synchronized void setIncremental(final boolean incremental) {
+        this.incremental = incremental;
+        this.touchedNodes.clear();
+        this.unplacedNodes.clear();
+        for (int i = 0; i < this.points.size(); i++) {
+            this.points.setFrozen(i, incremental);
+        }
+    }
+
+    /**
+     * Times every tick by phase and registers the {@link LayoutMetrics} as an MBean named
+     * cn.kk.forcedgraph:type=ForceDirectedLayout,name=layout-n. Ticks are also recorded as flight recorder events
+     * while a recording enables cn.kk.forcedgraph.LayoutTick. Disabling unregisters the MBean.
+     */
+    public final synchronized void setMetricsEnabled(final boolean enabled) {
+        if (enabled == (this.metrics != null)) {
+            return;
+        }
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (enabled) {
+                final String name = "cn.kk.forcedgraph:type=ForceDirectedLayout,name=layout-"
+                        + INSTANCES.incrementAndGet();
+                final LayoutMetrics metrics = new LayoutMetrics(name);
+                this.metricsName = new ObjectName(name);
+                server.registerMBean(metrics, this.metricsName);
+                this.metrics = metrics;
+            } else {
+                this.metrics = null;
+                server.unregisterMBean(this.metricsName);
+                this.metricsName = null;
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register the layout metrics.", e);
+        }
+    }
+
+    /**
+     * @param neighbourhood
+     *            the number of hops around a mutation that is relaxed in incremental mode
+     */
+    public final void setNeighbourhood(final int neighbourhood) {
+        this.neighbourhood = neighbourhood;
+    }
+
+    /**
+     * @param parallelism
+     *            number of fork/join workers used by {@link #step(double, double)}, 1 or less runs steps on the
+     *            calling thread
+     */
+    public final synchronized void setParallelism(final int parallelism) {
+        if (this.parallel != null) {
+            this.parallel.shutdown();
+            this.parallel = null;
+        }
+        if (parallelism > 1) {
+            this.parallel = new ParallelSimulation(this, parallelism);
+        }
+    }
+
+    /**
+     * @param seed
+     *            seeds the jitter of new nodes placed at their neighbours, so that runs on the same mutations repeat
+     */
+    public final synchronized void setSeed(final long seed) {
+        this.random.setSeed(seed);
+    }
+
+    /**
+     * Lets points that have settled fall asleep, sleeping points are skipped by force and integration passes but still
+     * repel and anchor springs. They wake up when a spring neighbour starts moving, a moving point comes close or an
+     * incident edge changes.
+     */
+    public final synchronized void setSleepEnabled(final boolean sleepEnabled) {
+        this.sleepEnabled = sleepEnabled;
+        if (!sleepEnabled) {
+            for (int i = 0; i < this.points.size(); i++) {
+                this.points.setSleeping(i, false);
+            }
+        }
+    }
+
+    /**
+     * @param theta
+     *            the Barnes-Hut opening angle, cells smaller than theta times their distance are approximated
+     */
+    public final void setTheta(double theta) {
+        this.theta = theta;
+    }
+
     public void startRendering(final long interval, final LayoutRenderListener rendererListener,
             final GraphFinishedListener finishedListener, final BoundingBox currentBB) {
         this.renderer.start(interval, rendererListener, finishedListener, currentBB);
     }
 
+    /**
+     * Advances the simulation by one step: repulsion, springs, centre attraction and integration.
+     */
+    public void step(final double velocityTimeStep, final double positionTimeStep) {
+        if (this.incremental && !this.touchedNodes.isEmpty()) {
+            thawTouchedNodes();
+        }
+        if (this.sleepEnabled) {
+            wakeSleepers();
+        }
+        final double scale = this.adaptive ? this.timeScale : 1d;
+        if (this.parallel != null) {
+            this.parallel.step(velocityTimeStep * scale, positionTimeStep * scale);
+        } else {
+            final LayoutMetrics metrics = this.metrics;
+            long time = LayoutMetrics.start(metrics);
+            applyCoulombsLaw();
+            time = LayoutMetrics.lap(metrics, LayoutMetrics.REPULSION, time);
+            applyHookesLaw();
+            time = LayoutMetrics.lap(metrics, LayoutMetrics.SPRINGS, time);
+            attractToCentre();
+            time = LayoutMetrics.lap(metrics, LayoutMetrics.CENTRE, time);
+            updateVelocity(velocityTimeStep * scale);
+            updatePosition(positionTimeStep * scale);
+            LayoutMetrics.lap(metrics, LayoutMetrics.INTEGRATION, time);
+        }
+        this.stepCount++;
+        if (this.adaptive) {
+            adaptTimeStep(positionTimeStep * scale);
+        }
+        if (this.sleepEnabled) {
+            updateSleep();
+        }
+        if (this.incremental && getTotalEnergy() < ENERGY_THRESHOLD) {
+            // the neighbourhood settled, freeze it again
+            for (int i = 0; i < this.points.size(); i++) {
+                this.points.setFrozen(i, true);
+            }
+        }
+    }
+
     public void stopRendering() {
         this.renderer.stop();
     }
 
+    private final void thawTouchedNodes() {
+        placeNewNodes();
+        // breadth first search up to the neighbourhood radius
+        List<Node> frontier = new ArrayList<Node>(this.touchedNodes);
+        final Set<Node> visited = new HashSet<Node>(this.touchedNodes);
+        this.touchedNodes.clear();
+        for (int hop = 0; hop < this.neighbourhood && !frontier.isEmpty(); hop++) {
+            final List<Node> next = new ArrayList<Node>();
+            for (Node node : frontier) {
+                for (Node neighbour : this.graph.getNeighbors(node)) {
+                    if (visited.add(neighbour)) {
+                        next.add(neighbour);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        for (Node node : visited) {
+            final Point point = this.nodePoints.get(node);
+            if (point != null) {
+                point.setFrozen(false);
+                point.setSleeping(false);
+            }
+        }
+    }
+
+    private final void topologyChanged() {
+        this.topology++;
+        this.snapshotDirty = true;
+    }
+
     public void updatePosition(final double timeStep) {
-        for (Node n : this.graph.getNodes()) {
-            final Point p = getPoint(n);
-            p.getPosition().add(Vector.multiply(p.getVelocity(), timeStep));
+        final int size = this.points.size();
+        final double[] x = this.points.getX();
+        final double[] y = this.points.getY();
+        final double[] vx = this.points.getVx();
+        final double[] vy = this.points.getVy();
+        final boolean[] inert = this.points.getInert();
+        for (int i = 0; i < size; i++) {
+            if (inert[i]) {
+                continue;
+            }
+            x[i] += vx[i] * timeStep;
+            y[i] += vy[i] * timeStep;
+        }
+    }
+
+    /**
+     * Puts points to sleep that rested long enough below the kinetic energy and within the distance of their anchor.
+     */
+    private final void updateSleep() {
+        final int size = this.points.size();
+        final double[] x = this.points.getX();
+        final double[] y = this.points.getY();
+        final double[] vx = this.points.getVx();
+        final double[] vy = this.points.getVy();
+        final double[] mass = this.points.getMass();
+        final double[] anchorX = this.points.getAnchorX();
+        final double[] anchorY = this.points.getAnchorY();
+        final int[] quietSteps = this.points.getQuietSteps();
+        final boolean[] inert = this.points.getInert();
+        for (int i = 0; i < size; i++) {
+            if (inert[i]) {
+                continue;
+            }
+            final double energy = 0.5 * mass[i] * (vx[i] * vx[i] + vy[i] * vy[i]);
+            final double dx = x[i] - anchorX[i];
+            final double dy = y[i] - anchorY[i];
+            if (energy < SLEEP_ENERGY && dx * dx + dy * dy < SLEEP_DISTANCE * SLEEP_DISTANCE) {
+                if (++quietSteps[i] >= SLEEP_STEPS) {
+                    this.points.setSleeping(i, true);
+                }
+            } else {
+                quietSteps[i] = 0;
+                anchorX[i] = x[i];
+                anchorY[i] = y[i];
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the picking index from the current positions. Skipped while a reader still holds the spare index, the
+     * next query or step catches up.
+     */
+    public synchronized void updateSpatialIndex() {
+        if (this.spareIndex.isInUse()) {
+            this.spatialIndexDirty = true;
+            return;
         }
+        this.spareIndex.build(this.points);
+        final SpatialIndex built = this.spareIndex;
+        this.spareIndex = this.spatialIndex;
+        this.spatialIndex = built;
+        this.spatialIndexDirty = false;
     }
 
     public void updateVelocity(final double timeStep) {
-        for (Node n : this.graph.getNodes()) {
-            final Point p = getPoint(n);
-            p.getVelocity().add(p.getForce().multiply(timeStep)).multiply(this.damping);
-            p.getForce().clear();
+        final int size = this.points.size();
+        final double[] vx = this.points.getVx();
+        final double[] vy = this.points.getVy();
+        final double[] fx = this.points.getFx();
+        final double[] fy = this.points.getFy();
+        final boolean[] inert = this.points.getInert();
+        for (int i = 0; i < size; i++) {
+            if (!inert[i]) {
+                vx[i] = (vx[i] + fx[i] * timeStep) * this.damping;
+                vy[i] = (vy[i] + fy[i] * timeStep) * this.damping;
+            }
+            fx[i] = 0d;
+            fy[i] = 0d;
         }
     }
 
+    private final void wake(final Edge edge) {
+        if (this.sleepEnabled) {
+            final Point source = this.nodePoints.get(edge.getSource());
+            if (source != null) {
+                source.setSleeping(false);
+            }
+            final Point target = this.nodePoints.get(edge.getTarget());
+            if (target != null) {
+                target.setSleeping(false);
+            }
+        }
+    }
+
+    /**
+     * Wakes sleeping points that a moving point repels with an acceleration above {@link #WAKE_FORCE}, so that points
+     * passing through a settled group push it apart instead of overlapping it.
+     */
+    private final void wakePushed() {
+        final int size = this.points.size();
+        final double[] x = this.points.getX();
+        final double[] y = this.points.getY();
+        final double[] vx = this.points.getVx();
+        final double[] vy = this.points.getVy();
+        final double[] mass = this.points.getMass();
+        final boolean[] sleeping = this.points.getSleeping();
+        final boolean[] inert = this.points.getInert();
+        boolean moving = false;
+        double lightest = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            if (sleeping[i]) {
+                if (mass[i] > 0d) {
+                    lightest = Math.min(lightest, mass[i]);
+                }
+            } else if (!inert[i] && 0.5 * mass[i] * (vx[i] * vx[i] + vy[i] * vy[i]) > WAKE_ENERGY) {
+                moving = true;
+            }
+        }
+        if (!moving || lightest == Double.POSITIVE_INFINITY) {
+            return;
+        }
+        this.wakeIndex.build(this.points);
+        // the repulsion of a point falls below the threshold for the lightest sleeper beyond this distance
+        final double radius = Math.sqrt(this.repulsion / (lightest * WAKE_FORCE));
+        for (int j = 0; j < size; j++) {
+            if (inert[j] || 0.5 * mass[j] * (vx[j] * vx[j] + vy[j] * vy[j]) <= WAKE_ENERGY) {
+                continue;
+            }
+            int count = this.wakeIndex.within(x[j], y[j], radius, this.nearby);
+            if (count > this.nearby.length) {
+                this.nearby = new int[Integer.highestOneBit(count) * 2];
+                count = this.wakeIndex.within(x[j], y[j], radius, this.nearby);
+            }
+            for (int k = 0; k < count; k++) {
+                final int i = this.nearby[k];
+                if (sleeping[i] && mass[i] > 0d) {
+                    final double dx = x[i] - x[j];
+                    final double dy = y[i] - y[j];
+                    final double distance = Math.sqrt(dx * dx + dy * dy) + 0.1;
+                    if (this.repulsion / (distance * distance * mass[i]) > WAKE_FORCE) {
+                        this.points.setSleeping(i, false);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Wakes sleeping points whose spring neighbours move, a moving island wakes up one spring further every step, and
+     * those a moving point comes close to, see {@link #wakePushed()}.
+     */
+    private final void wakeSleepers() {
+        final int size = this.springs.size();
+        final double[] vx = this.points.getVx();
+        final double[] vy = this.points.getVy();
+        final double[] mass = this.points.getMass();
+        final boolean[] sleeping = this.points.getSleeping();
+        for (int s = 0; s < size; s++) {
+            final Spring spring = this.springs.get(s);
+            final int i = spring.getPoint1().getIndex();
+            final int j = spring.getPoint2().getIndex();
+            if (sleeping[i] != sleeping[j]) {
+                final int awake = sleeping[i] ? j : i;
+                if (0.5 * mass[awake] * (vx[awake] * vx[awake] + vy[awake] * vy[awake]) > WAKE_ENERGY) {
+                    this.points.setSleeping(sleeping[i] ? i : j, false);
+                }
+            }
+        }
+        wakePushed();
+    }
+
+    /**
+     * @return all nodes not farther than radius from the position, closest first
+     */
+    public List<DistanceResult> within(final Vector position, final double radius) {
+        final SpatialIndex index = acquireSpatialIndex();
+        try {
+            return index.within(position.getX(), position.getY(), radius);
+        } finally {
+            index.release();
+        }
+    }
 }
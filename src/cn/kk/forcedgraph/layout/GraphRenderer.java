@@ -20,22 +20,31 @@
  */
 package cn.kk.forcedgraph.layout;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import cn.kk.forcedgraph.graph.BoundingBox;
+import cn.kk.forcedgraph.graph.Vector;
 import cn.kk.forcedgraph.listener.GraphFinishedListener;
 import cn.kk.forcedgraph.listener.LayoutRenderListener;
 
 public class GraphRenderer implements Runnable {
+    public static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor();
     private static final double POSITION_MOD_PERCENT = 0.03;
     private static final double VELOCITY_MOD_PERCENT = 0.03;
+    // default time slice of one frame, leaves room for painting at 60 frames per second
+    public static final long DEFAULT_FRAME_BUDGET = 8L;
 
     private final ForceDirectedLayout layout;
+    // reused by adjustBB, keeps the tick free of allocations
+    private final BoundingBox targetBB = new BoundingBox(new Vector(0d, 0d), new Vector(0d, 0d));
     private long interval;
     private LayoutRenderListener rendererListener;
     private GraphFinishedListener finishedListener;
     private BoundingBox currentBB;
     private boolean rendering = false;
+    private long frameBudget = TimeUnit.MILLISECONDS.toNanos(DEFAULT_FRAME_BUDGET);
 
     public GraphRenderer(final ForceDirectedLayout layout) {
         this.layout = layout;
@@ -52,12 +61,22 @@ public class GraphRenderer implements Runnable {
     }
 
     private void adjustBB() {
-        final BoundingBox targetBB = this.layout.getBoundingBox();
-        // current gets 20% closer to target every iteration
-        this.currentBB.getBottomLeft().add(targetBB.getBottomLeft().substract(this.currentBB.getBottomLeft())
-                .divide(10));
-        this.currentBB.getTopRight().add(targetBB.getTopRight().substract(this.currentBB.getTopRight())
-                .divide(10));
+        final BoundingBox targetBB = this.layout.getBoundingBox(this.targetBB);
+        // current gets 10% closer to target every iteration
+        ease(this.currentBB.getBottomLeft(), targetBB.getBottomLeft());
+        ease(this.currentBB.getTopRight(), targetBB.getTopRight());
+    }
+
+    private static final void ease(final Vector current, final Vector target) {
+        current.setX(current.getX() + (target.getX() - current.getX()) / 10);
+        current.setY(current.getY() + (target.getY() - current.getY()) / 10);
+    }
+
+    /**
+     * @return the frameBudget in milliseconds
+     */
+    public final long getFrameBudget() {
+        return TimeUnit.NANOSECONDS.toMillis(this.frameBudget);
     }
 
     public final boolean isRendering() {
@@ -66,17 +85,26 @@ public class GraphRenderer implements Runnable {
 
     @Override
     public void run() {
+        final long waiting = LayoutMetrics.start(this.layout.getMetrics());
         synchronized (this.layout) {
             if (this.rendering) {
-                if (update()) {
+                if (update(waiting)) {
                     this.rendering = false;
                 } else {
-                    GraphPanel.SCHEDULER.schedule(this, this.interval, TimeUnit.MILLISECONDS);
+                    SCHEDULER.schedule(this, this.interval, TimeUnit.MILLISECONDS);
                 }
             }
         }
     }
 
+    /**
+     * @param frameBudget
+     *            milliseconds of simulation per frame, as many steps as fit are run before the positions are published
+     */
+    public final void setFrameBudget(final long frameBudget) {
+        this.frameBudget = TimeUnit.MILLISECONDS.toNanos(frameBudget);
+    }
+
     public void start(final long interval,
             final LayoutRenderListener rendererListener, final GraphFinishedListener finishedListener,
             final BoundingBox currentBB) {
@@ -95,32 +123,70 @@ public class GraphRenderer implements Runnable {
     }
 
     /**
+     * Runs one frame on the calling thread, whether the renderer is started or not.
      * 
      * @return finished flag
      */
-    private final boolean update() {
-        this.layout.applyCoulombsLaw();
-        this.layout.applyHookesLaw();
-        this.layout.attractToCentre();
-        this.layout.updateVelocity(VELOCITY_MOD_PERCENT);
-        this.layout.updatePosition(POSITION_MOD_PERCENT);
+    public final boolean tick() {
+        final long waiting = LayoutMetrics.start(this.layout.getMetrics());
+        synchronized (this.layout) {
+            return update(waiting);
+        }
+    }
+
+    /**
+     * Runs one frame: steps until the frame budget is used up or the layout settles, at least one step. A step
+     * taking longer than the budget, as in large graphs, makes it one step per frame.
+     * 
+     * @param waiting
+     *            when the tick started to wait for the layout monitor, only read with metrics enabled
+     * @return finished flag
+     */
+    private final boolean update(final long waiting) {
+        final LayoutMetrics metrics = this.layout.getMetrics();
+        final long start = LayoutMetrics.start(metrics);
+        if (metrics != null) {
+            // metrics may have been enabled while waiting
+            metrics.tickStarted(waiting == 0L ? 0L : start - waiting);
+        }
+        this.layout.drainMutations();
+        final long deadline = System.nanoTime() + this.frameBudget;
+        boolean finished;
+        int steps = 0;
+        do {
+            this.layout.step(VELOCITY_MOD_PERCENT, POSITION_MOD_PERCENT);
+            steps++;
+            // stop simulation when energy of the system goes below a threshold
+            finished = this.layout.getTotalEnergy() < ForceDirectedLayout.ENERGY_THRESHOLD;
+        } while (!finished && System.nanoTime() < deadline);
+        long time = LayoutMetrics.start(metrics);
+        this.layout.updateSpatialIndex();
+        time = LayoutMetrics.lap(metrics, LayoutMetrics.SPATIAL_INDEX, time);
+        // painters read the positions from the snapshot, outside of the layout lock
+        this.layout.publishSnapshot();
+        time = LayoutMetrics.lap(metrics, LayoutMetrics.SNAPSHOT, time);
 
         if (this.rendererListener != null) {
             this.rendererListener.onRender();
         }
+        time = LayoutMetrics.lap(metrics, LayoutMetrics.RENDER, time);
 
-        // stop simulation when energy of the system goes below a threshold
-        if (this.layout.getTotalEnergy() < 0.01) {
+        if (finished) {
             this.layout.stopRendering();
             if (this.finishedListener != null) {
                 this.finishedListener.onFinished();
             }
-            this.currentBB.update(this.layout.getBoundingBox());
-            return true;
+            // finished listeners paint the last frame
+            time = LayoutMetrics.lap(metrics, LayoutMetrics.RENDER, time);
+            this.currentBB.update(this.layout.getBoundingBox(this.targetBB));
         } else {
             adjustBB();
-            return false;
         }
+        LayoutMetrics.lap(metrics, LayoutMetrics.BOUNDING_BOX, time);
+        if (metrics != null) {
+            metrics.tickFinished(start, steps, this.layout);
+        }
+        return finished;
     }
 
 }
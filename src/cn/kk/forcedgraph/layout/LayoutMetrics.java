@@ -0,0 +1,254 @@
+/*  Copyright (c) 2010 Xiaoyun Zhu
+ * 
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy  
+ *  of this software and associated documentation files (the "Software"), to deal  
+ *  in the Software without restriction, including without limitation the rights  
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell  
+ *  copies of the Software, and to permit persons to whom the Software is  
+ *  furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in  
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR  
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,  
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER  
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,  
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
+ *  THE SOFTWARE.  
+ */
+package cn.kk.forcedgraph.layout;
+
+/**
+ * Timings and counters of the ticks of one layout, see {@link ForceDirectedLayout#setMetricsEnabled(boolean)}.
+ * Published as an MBean and as flight recorder events, which is why the layout needs Java 11 or later. Phases are
+ * timed only while metrics are enabled, otherwise the layout skips the clock entirely.
+ * <p>
+ * In parallel simulations the springs are timed with the repulsion and the centre attraction with the integration.
+ * 
+ * @author x_kez
+ * 
+ */
+public final class LayoutMetrics implements LayoutMetricsMBean {
+    static final int REPULSION = 0;
+    static final int SPRINGS = 1;
+    static final int CENTRE = 2;
+    static final int INTEGRATION = 3;
+    static final int SPATIAL_INDEX = 4;
+    static final int BOUNDING_BOX = 5;
+    static final int RENDER = 6;
+    static final int SNAPSHOT = 7;
+    private static final int PHASES = 8;
+
+    private final String name;
+    // phases of the running tick, written by the simulation thread only
+    private final long[] current = new long[PHASES];
+    private long lockWait;
+    private LayoutTickEvent event;
+    // published at the end of every tick
+    private volatile long[] last = new long[PHASES];
+    private volatile long lastLockWait;
+    private volatile long lastTick;
+    private volatile int lastSteps;
+    private volatile long maxTick;
+    private volatile long totalTick;
+    private volatile long totalLockWait;
+    private volatile long tickCount;
+    private volatile long iterations;
+    private volatile double energy;
+    private volatile int nodes;
+    private volatile int edges;
+
+    LayoutMetrics(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Adds the time since the given start to the phase.
+     * 
+     * @return the current time, start of the next phase, or 0 without metrics
+     */
+    static final long lap(final LayoutMetrics metrics, final int phase, final long since) {
+        if (metrics == null) {
+            return 0L;
+        }
+        final long now = System.nanoTime();
+        metrics.current[phase] += now - since;
+        return now;
+    }
+
+    /**
+     * @return the current time, or 0 without metrics
+     */
+    static final long start(final LayoutMetrics metrics) {
+        return metrics == null ? 0L : System.nanoTime();
+    }
+
+    @Override
+    public int getEdgeCount() {
+        return this.edges;
+    }
+
+    @Override
+    public long getIterations() {
+        return this.iterations;
+    }
+
+    @Override
+    public long getLastBoundingBoxNanos() {
+        return this.last[BOUNDING_BOX];
+    }
+
+    @Override
+    public long getLastCentreNanos() {
+        return this.last[CENTRE];
+    }
+
+    @Override
+    public long getLastIntegrationNanos() {
+        return this.last[INTEGRATION];
+    }
+
+    @Override
+    public long getLastLockWaitNanos() {
+        return this.lastLockWait;
+    }
+
+    @Override
+    public long getLastRenderNanos() {
+        return this.last[RENDER];
+    }
+
+    @Override
+    public long getLastRepulsionNanos() {
+        return this.last[REPULSION];
+    }
+
+    @Override
+    public long getLastSpatialIndexNanos() {
+        return this.last[SPATIAL_INDEX];
+    }
+
+    @Override
+    public long getLastSnapshotNanos() {
+        return this.last[SNAPSHOT];
+    }
+
+    @Override
+    public long getLastSpringsNanos() {
+        return this.last[SPRINGS];
+    }
+
+    @Override
+    public int getLastSteps() {
+        return this.lastSteps;
+    }
+
+    @Override
+    public long getLastTickNanos() {
+        return this.lastTick;
+    }
+
+    @Override
+    public long getMaxTickNanos() {
+        return this.maxTick;
+    }
+
+    /**
+     * @return the name the MBean is registered with
+     */
+    public final String getName() {
+        return this.name;
+    }
+
+    @Override
+    public int getNodeCount() {
+        return this.nodes;
+    }
+
+    @Override
+    public long getTickCount() {
+        return this.tickCount;
+    }
+
+    @Override
+    public double getTotalEnergy() {
+        return this.energy;
+    }
+
+    @Override
+    public long getTotalLockWaitNanos() {
+        return this.totalLockWait;
+    }
+
+    @Override
+    public long getTotalTickNanos() {
+        return this.totalTick;
+    }
+
+    @Override
+    public synchronized void reset() {
+        this.maxTick = 0L;
+        this.totalTick = 0L;
+        this.totalLockWait = 0L;
+        this.tickCount = 0L;
+    }
+
+    /**
+     * Publishes the tick started at the given time.
+     */
+    synchronized final void tickFinished(final long start, final int steps, final ForceDirectedLayout layout) {
+        final long duration = System.nanoTime() - start;
+        this.last = this.current.clone();
+        this.lastLockWait = this.lockWait;
+        this.lastTick = duration;
+        this.lastSteps = steps;
+        this.maxTick = Math.max(this.maxTick, duration);
+        this.totalTick += duration;
+        this.totalLockWait += this.lockWait;
+        this.tickCount++;
+        this.iterations = layout.getStepCount();
+        this.energy = layout.getTotalEnergy();
+        this.nodes = layout.getPoints().size();
+        this.edges = layout.getEdgeSprings().size();
+        if (this.event != null) {
+            final LayoutTickEvent event = this.event;
+            this.event = null;
+            event.end();
+            if (event.shouldCommit()) {
+                event.layout = this.name;
+                event.steps = steps;
+                event.repulsion = this.current[REPULSION];
+                event.springs = this.current[SPRINGS];
+                event.centre = this.current[CENTRE];
+                event.integration = this.current[INTEGRATION];
+                event.spatialIndex = this.current[SPATIAL_INDEX];
+                event.boundingBox = this.current[BOUNDING_BOX];
+                event.render = this.current[RENDER];
+                event.snapshot = this.current[SNAPSHOT];
+                event.lockWait = this.lockWait;
+                event.energy = this.energy;
+                event.iterations = this.iterations;
+                event.nodes = this.nodes;
+                event.edges = this.edges;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Starts a tick that waited the given time for the layout monitor.
+     */
+    final void tickStarted(final long lockWait) {
+        for (int i = 0; i < PHASES; i++) {
+            this.current[i] = 0L;
+        }
+        this.lockWait = lockWait;
+        final LayoutTickEvent event = new LayoutTickEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            this.event = event;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*  Copyright (c) 2010 Xiaoyun Zhu
+ * 
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy  
+ *  of this software and associated documentation files (the "Software"), to deal  
+ *  in the Software without restriction, including without limitation the rights  
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell  
+ *  copies of the Software, and to permit persons to whom the Software is  
+ *  furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in  
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR  
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,  
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER  
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,  
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
+ *  THE SOFTWARE.  
+ */
+package cn.kk.forcedgraph.layout;
+
+/**
+ * Management interface of {@link LayoutMetrics}. Times are in nanoseconds, "last" values describe the last finished
+ * tick.
+ * 
+ * @author x_kez
+ * 
+ */
+public interface LayoutMetricsMBean {
+    public int getEdgeCount();
+
+    public long getIterations();
+
+    public long getLastBoundingBoxNanos();
+
+    public long getLastCentreNanos();
+
+    public long getLastIntegrationNanos();
+
+    public long getLastLockWaitNanos();
+
+    public long getLastRenderNanos();
+
+    public long getLastRepulsionNanos();
+
+    public long getLastSpatialIndexNanos();
+
+    public long getLastSnapshotNanos();
+
+    public long getLastSpringsNanos();
+
+    public int getLastSteps();
+
+    public long getLastTickNanos();
+
+    public long getMaxTickNanos();
+
+    public int getNodeCount();
+
+    public long getTickCount();
+
+    public double getTotalEnergy();
+
+    public long getTotalLockWaitNanos();
+
+    public long getTotalTickNanos();
+
+    public void reset();
+}
@@ -0,0 +1,378 @@
+/*  Copyright (c) 2010 Xiaoyun Zhu
+ * 
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy  
+ *  of this software and associated documentation files (the "Software"), to deal  
+ *  in the Software without restriction, including without limitation the rights  
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell  
+ *  copies of the Software, and to permit persons to whom the Software is  
+ *  furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in  
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR  
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,  
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER  
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,  
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
+ *  THE SOFTWARE.  
+ */
+package cn.kk.forcedgraph.layout;
+
+import cn.kk.forcedgraph.listener.LayoutProgressListener;
+
+/**
+ * Parameters of {@link ForceDirectedLayout#layout(cn.kk.forcedgraph.graph.Graph, LayoutOptions)}.
+ * 
+ * @author x_kez
+ * 
+ */
+public class LayoutOptions {
+    private double stiffness = 500.0;
+    private double repulsion = 500.0;
+    private double damping = 0.5;
+    private double velocityTimeStep = 0.03;
+    private double positionTimeStep = 0.03;
+    private double energyThreshold = ForceDirectedLayout.ENERGY_THRESHOLD;
+    private int maxIterations = 10000;
+    private long timeBudget;
+    private boolean barnesHut;
+    private double theta = 0.8;
+    private int parallelism = 1;
+    private boolean components = true;
+    private boolean multilevel;
+    private boolean sleepEnabled;
+    private boolean adaptive;
+    private int levelIterations = 300;
+    private Long seed;
+    private LayoutProgressListener progressListener;
+    private int progressInterval = 100;
+
+    public LayoutOptions() {
+
+    }
+
+    /**
+     * @param adaptive
+     *            adapt the time steps to the progress of the layout, see {@link ForceDirectedLayout#setAdaptive(boolean)}
+     */
+    public LayoutOptions adaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+        return this;
+    }
+
+    /**
+     * @param barnesHut
+     *            the barnesHut to set
+     */
+    public LayoutOptions barnesHut(boolean barnesHut) {
+        this.barnesHut = barnesHut;
+        return this;
+    }
+
+    /**
+     * @param components
+     *            lay out connected components separately and in parallel, then pack them side by side
+     */
+    public LayoutOptions components(boolean components) {
+        this.components = components;
+        return this;
+    }
+
+    /**
+     * @return an independent copy of these options
+     */
+    final LayoutOptions copy() {
+        final LayoutOptions copy = new LayoutOptions();
+        copy.stiffness = this.stiffness;
+        copy.repulsion = this.repulsion;
+        copy.damping = this.damping;
+        copy.velocityTimeStep = this.velocityTimeStep;
+        copy.positionTimeStep = this.positionTimeStep;
+        copy.energyThreshold = this.energyThreshold;
+        copy.maxIterations = this.maxIterations;
+        copy.timeBudget = this.timeBudget;
+        copy.barnesHut = this.barnesHut;
+        copy.theta = this.theta;
+        copy.parallelism = this.parallelism;
+        copy.components = this.components;
+        copy.multilevel = this.multilevel;
+        copy.sleepEnabled = this.sleepEnabled;
+        copy.adaptive = this.adaptive;
+        copy.levelIterations = this.levelIterations;
+        copy.seed = this.seed;
+        copy.progressListener = this.progressListener;
+        copy.progressInterval = this.progressInterval;
+        return copy;
+    }
+
+    /**
+     * @param damping
+     *            the damping to set
+     */
+    public LayoutOptions damping(double damping) {
+        this.damping = damping;
+        return this;
+    }
+
+    /**
+     * @param energyThreshold
+     *            total energy below which the layout counts as converged
+     */
+    public LayoutOptions energyThreshold(double energyThreshold) {
+        this.energyThreshold = energyThreshold;
+        return this;
+    }
+
+    /**
+     * @return the damping
+     */
+    public final double getDamping() {
+        return this.damping;
+    }
+
+    /**
+     * @return the energyThreshold
+     */
+    public final double getEnergyThreshold() {
+        return this.energyThreshold;
+    }
+
+    /**
+     * @return the levelIterations
+     */
+    public final int getLevelIterations() {
+        return this.levelIterations;
+    }
+
+    /**
+     * @return the maxIterations
+     */
+    public final int getMaxIterations() {
+        return this.maxIterations;
+    }
+
+    /**
+     * @return the parallelism
+     */
+    public final int getParallelism() {
+        return this.parallelism;
+    }
+
+    /**
+     * @return the positionTimeStep
+     */
+    public final double getPositionTimeStep() {
+        return this.positionTimeStep;
+    }
+
+    /**
+     * @return the progressInterval
+     */
+    public final int getProgressInterval() {
+        return this.progressInterval;
+    }
+
+    /**
+     * @return the progressListener
+     */
+    public final LayoutProgressListener getProgressListener() {
+        return this.progressListener;
+    }
+
+    /**
+     * @return the repulsion
+     */
+    public final double getRepulsion() {
+        return this.repulsion;
+    }
+
+    /**
+     * @return the seed, null for random initial positions
+     */
+    public final Long getSeed() {
+        return this.seed;
+    }
+
+    /**
+     * @return the stiffness
+     */
+    public final double getStiffness() {
+        return this.stiffness;
+    }
+
+    /**
+     * @return the theta
+     */
+    public final double getTheta() {
+        return this.theta;
+    }
+
+    /**
+     * @return the timeBudget in milliseconds, 0 for none
+     */
+    public final long getTimeBudget() {
+        return this.timeBudget;
+    }
+
+    /**
+     * @return the velocityTimeStep
+     */
+    public final double getVelocityTimeStep() {
+        return this.velocityTimeStep;
+    }
+
+    /**
+     * @return the adaptive
+     */
+    public final boolean isAdaptive() {
+        return this.adaptive;
+    }
+
+    /**
+     * @return the barnesHut
+     */
+    public final boolean isBarnesHut() {
+        return this.barnesHut;
+    }
+
+    /**
+     * @return the components
+     */
+    public final boolean isComponents() {
+        return this.components;
+    }
+
+    /**
+     * @return the multilevel
+     */
+    public final boolean isMultilevel() {
+        return this.multilevel;
+    }
+
+    /**
+     * @return the sleepEnabled
+     */
+    public final boolean isSleepEnabled() {
+        return this.sleepEnabled;
+    }
+
+    /**
+     * @param levelIterations
+     *            iteration limit of each coarse level of a multilevel layout
+     */
+    public LayoutOptions levelIterations(int levelIterations) {
+        this.levelIterations = levelIterations;
+        return this;
+    }
+
+    /**
+     * @param maxIterations
+     *            the maxIterations to set
+     */
+    public LayoutOptions maxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
+        return this;
+    }
+
+    /**
+     * @param multilevel
+     *            lay out successively coarsened copies of the graph first, see {@link MultilevelLayout}
+     */
+    public LayoutOptions multilevel(boolean multilevel) {
+        this.multilevel = multilevel;
+        return this;
+    }
+
+    /**
+     * @param parallelism
+     *            the parallelism to set
+     */
+    public LayoutOptions parallelism(int parallelism) {
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * @param positionTimeStep
+     *            the positionTimeStep to set
+     */
+    public LayoutOptions positionTimeStep(double positionTimeStep) {
+        this.positionTimeStep = positionTimeStep;
+        return this;
+    }
+
+    /**
+     * @param progressListener
+     *            called every progressInterval iterations, may cancel the layout
+     */
+    public LayoutOptions progress(LayoutProgressListener progressListener, int progressInterval) {
+        this.progressListener = progressListener;
+        this.progressInterval = Math.max(1, progressInterval);
+        return this;
+    }
+
+    /**
+     * @param repulsion
+     *            the repulsion to set
+     */
+    public LayoutOptions repulsion(double repulsion) {
+        this.repulsion = repulsion;
+        return this;
+    }
+
+    /**
+     * @param seed
+     *            seed of the initial positions, makes layouts reproducible
+     */
+    public LayoutOptions seed(long seed) {
+        this.seed = Long.valueOf(seed);
+        return this;
+    }
+
+    /**
+     * @param sleepEnabled
+     *            let settled points fall asleep, see {@link ForceDirectedLayout#setSleepEnabled(boolean)}
+     */
+    public LayoutOptions sleep(boolean sleepEnabled) {
+        this.sleepEnabled = sleepEnabled;
+        return this;
+    }
+
+    /**
+     * @param stiffness
+     *            the stiffness to set
+     */
+    public LayoutOptions stiffness(double stiffness) {
+        this.stiffness = stiffness;
+        return this;
+    }
+
+    /**
+     * @param theta
+     *            the theta to set
+     */
+    public LayoutOptions theta(double theta) {
+        this.theta = theta;
+        return this;
+    }
+
+    /**
+     * @param timeBudget
+     *            wall clock limit in milliseconds, 0 for none
+     */
+    public LayoutOptions timeBudget(long timeBudget) {
+        this.timeBudget = timeBudget;
+        return this;
+    }
+
+    /**
+     * @param velocityTimeStep
+     *            the velocityTimeStep to set
+     */
+    public LayoutOptions velocityTimeStep(double velocityTimeStep) {
+        this.velocityTimeStep = velocityTimeStep;
+        return this;
+    }
+}
@@ -0,0 +1,99 @@
+/*  Copyright (c) 2010 Xiaoyun Zhu
+ * 
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy  
+ *  of this software and associated documentation files (the "Software"), to deal  
+ *  in the Software without restriction, including without limitation the rights  
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell  
+ *  copies of the Software, and to permit persons to whom the Software is  
+ *  furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in  
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR  
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,  
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER  
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,  
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
+ *  THE SOFTWARE.  
+ */
+package cn.kk.forcedgraph.layout;
+
+import java.util.Map;
+
+import cn.kk.forcedgraph.graph.Node;
+import cn.kk.forcedgraph.graph.Vector;
+
+/**
+ * Outcome of {@link ForceDirectedLayout#layout(cn.kk.forcedgraph.graph.Graph, LayoutOptions)}.
+ * 
+ * @author x_kez
+ * 
+ */
+public final class LayoutResult {
+    public static enum Status {
+        CONVERGED, ITERATION_LIMIT, TIME_LIMIT, CANCELLED
+    }
+
+    private final Map<Node, Vector> positions;
+    private final Status status;
+    private final int iterations;
+    private final double energy;
+    private final long elapsed;
+
+    public LayoutResult(final Map<Node, Vector> positions, final Status status, final int iterations,
+            final double energy, final long elapsed) {
+        this.positions = positions;
+        this.status = status;
+        this.iterations = iterations;
+        this.energy = energy;
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * @return the elapsed time in milliseconds
+     */
+    public final long getElapsed() {
+        return this.elapsed;
+    }
+
+    /**
+     * @return the total energy after the last iteration
+     */
+    public final double getEnergy() {
+        return this.energy;
+    }
+
+    /**
+     * @return the iterations
+     */
+    public final int getIterations() {
+        return this.iterations;
+    }
+
+    /**
+     * @return the final position of every node
+     */
+    public final Map<Node, Vector> getPositions() {
+        return this.positions;
+    }
+
+    /**
+     * @return the status
+     */
+    public final Status getStatus() {
+        return this.status;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "LayoutResult [status=" + this.status + ", iterations=" + this.iterations + ", energy=" + this.energy
+                + ", elapsed=" + this.elapsed + "]";
+    }
+}
@@ -0,0 +1,101 @@
+/*  Copyright (c) 2010 Xiaoyun Zhu
+ * 
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy  
+ *  of this software and associated documentation files (the "Software"), to deal  
+ *  in the Software without restriction, including without limitation the rights  
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell  
+ *  copies of the Software, and to permit persons to whom the Software is  
+ *  furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in  
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR  
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,  
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER  
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,  
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
+ *  THE SOFTWARE.  
+ */
+package cn.kk.forcedgraph.layout;
+
+import java.util.Map;
+
+import cn.kk.forcedgraph.graph.Node;
+import cn.kk.forcedgraph.graph.Vector;
+import cn.kk.forcedgraph.listener.LayoutProgressListener;
+
+/**
+ * Iteration, time and cancellation bookkeeping of one headless layout, possibly spanning several simulations.
+ * 
+ * @author x_kez
+ * 
+ */
+final class LayoutRun {
+    private final LayoutOptions options;
+    private final LayoutProgressListener listener;
+    private final long start;
+    // nanoseconds
+    private final long timeBudget;
+    private int iterations;
+    private double energy;
+    private LayoutResult.Status status = LayoutResult.Status.ITERATION_LIMIT;
+
+    LayoutRun(final LayoutOptions options) {
+        this.options = options;
+        this.listener = options.getProgressListener();
+        this.start = System.nanoTime();
+        this.timeBudget = options.getTimeBudget() > 0 ? options.getTimeBudget() * 1000000L : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return the status of the last relaxation
+     */
+    final LayoutResult.Status getStatus() {
+        return this.status;
+    }
+
+    /**
+     * Steps the layout until its energy drops below the threshold or limit steps are done.
+     * 
+     * @return false when the whole run is over: iteration limit, time limit or cancellation
+     */
+    final boolean relax(final ForceDirectedLayout layout, final int limit) {
+        final double threshold = this.options.getEnergyThreshold();
+        final int interval = this.options.getProgressInterval();
+        for (int i = 0; i < limit; i++) {
+            layout.step(this.options.getVelocityTimeStep(), this.options.getPositionTimeStep());
+            this.iterations++;
+            this.energy = layout.getTotalEnergy();
+            if (this.energy < threshold) {
+                this.status = LayoutResult.Status.CONVERGED;
+                return true;
+            }
+            if (this.iterations >= this.options.getMaxIterations()) {
+                this.status = LayoutResult.Status.ITERATION_LIMIT;
+                return false;
+            }
+            if (this.listener != null && this.iterations % interval == 0
+                    && !this.listener.onProgress(this.iterations, this.energy)) {
+                this.status = LayoutResult.Status.CANCELLED;
+                return false;
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                this.status = LayoutResult.Status.CANCELLED;
+                return false;
+            }
+            if (System.nanoTime() - this.start >= this.timeBudget) {
+                this.status = LayoutResult.Status.TIME_LIMIT;
+                return false;
+            }
+        }
+        this.status = LayoutResult.Status.ITERATION_LIMIT;
+        return true;
+    }
+
+    final LayoutResult result(final Map<Node, Vector> positions) {
+        return new LayoutResult(positions, this.status, this.iterations, this.energy,
+                (System.nanoTime() - this.start) / 1000000L);
+    }
+}
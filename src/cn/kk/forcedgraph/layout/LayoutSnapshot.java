@@ -0,0 +1,213 @@
+/*  Copyright (c) 2010 Xiaoyun Zhu
+ * 
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy  
+ *  of this software and associated documentation files (the "Software"), to deal  
+ *  in the Software without restriction, including without limitation the rights  
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell  
+ *  copies of the Software, and to permit persons to whom the Software is  
+ *  furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in  
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR  
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,  
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER  
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,  
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
+ *  THE SOFTWARE.  
+ */
+package cn.kk.forcedgraph.layout;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import cn.kk.forcedgraph.graph.Edge;
+import cn.kk.forcedgraph.graph.Graph;
+import cn.kk.forcedgraph.graph.Node;
+import cn.kk.forcedgraph.graph.Point;
+import cn.kk.forcedgraph.graph.PointStore;
+
+/**
+ * Copy of the positions of a layout and of the nodes and edges they belong to, for painting without the layout
+ * lock. A published snapshot is never modified: the layout copies the next one into a spare instance and swaps them,
+ * like {@link SpatialIndex}. Readers get one from {@link ForceDirectedLayout#acquireSnapshot()} and must
+ * {@link #release()} it when done.
+ * <p>
+ * Nodes and edges are copied again only when the topology changed, every other publish copies just the positions.
+ * Edges refer to their end nodes by index into the node arrays.
+ * 
+ * @author x_kez
+ * 
+ */
+public final class LayoutSnapshot {
+    private final AtomicInteger readers = new AtomicInteger();
+
+    // topology the node and edge arrays were built for, -1 before the first build
+    private long topology = -1L;
+    private int size;
+    private double[] x = new double[16];
+    private double[] y = new double[16];
+    private Node[] nodes = new Node[16];
+    private int edgeCount;
+    private Edge[] edges = new Edge[16];
+    private int[] source = new int[16];
+    private int[] target = new int[16];
+    private int[] parallelIndex = new int[16];
+    private int[] parallelCount = new int[16];
+
+    final void acquire() {
+        this.readers.incrementAndGet();
+    }
+
+    /**
+     * Copies the current state of the layout.
+     */
+    void build(final ForceDirectedLayout layout, final long topology) {
+        final PointStore store = layout.getPoints();
+        final int n = store.size();
+        if (this.x.length < n) {
+            final int capacity = Math.max(n, this.x.length * 2);
+            this.x = new double[capacity];
+            this.y = new double[capacity];
+            this.nodes = new Node[capacity];
+        }
+        System.arraycopy(store.getX(), 0, this.x, 0, n);
+        System.arraycopy(store.getY(), 0, this.y, 0, n);
+        this.size = n;
+        if (topology != this.topology) {
+            buildTopology(layout);
+            this.topology = topology;
+        }
+    }
+
+    private final void buildTopology(final ForceDirectedLayout layout) {
+        final PointStore store = layout.getPoints();
+        for (int i = 0; i < this.size; i++) {
+            this.nodes[i] = store.getNode(i);
+        }
+        for (int i = this.size; i < this.nodes.length && this.nodes[i] != null; i++) {
+            this.nodes[i] = null;
+        }
+        final Graph graph = layout.getGraph();
+        final Map<Node, Point> nodePoints = layout.getNodePoints();
+        final int m = layout.getEdgeSprings().size();
+        if (this.edges.length < m) {
+            final int capacity = Math.max(m, this.edges.length * 2);
+            this.edges = new Edge[capacity];
+            this.source = new int[capacity];
+            this.target = new int[capacity];
+            this.parallelIndex = new int[capacity];
+            this.parallelCount = new int[capacity];
+        }
+        int e = 0;
+        for (Edge edge : layout.getEdgeSprings().keySet()) {
+            final Point sourcePoint = nodePoints.get(edge.getSource());
+            final Point targetPoint = nodePoints.get(edge.getTarget());
+            if (sourcePoint == null || targetPoint == null) {
+                continue;
+            }
+            final List<Edge> from = graph.getEdges(edge.getSource(), edge.getTarget());
+            this.edges[e] = edge;
+            this.source[e] = sourcePoint.getIndex();
+            this.target[e] = targetPoint.getIndex();
+            this.parallelIndex[e] = Math.max(0, from.indexOf(edge));
+            this.parallelCount[e] = from.size() + graph.getEdges(edge.getTarget(), edge.getSource()).size();
+            e++;
+        }
+        for (int i = e; i < this.edges.length && this.edges[i] != null; i++) {
+            this.edges[i] = null;
+        }
+        this.edgeCount = e;
+    }
+
+    /**
+     * @return the number of edges
+     */
+    public final int edgeCount() {
+        return this.edgeCount;
+    }
+
+    /**
+     * @return the edges, valid up to {@link #edgeCount()}
+     */
+    public final Edge[] getEdges() {
+        return this.edges;
+    }
+
+    /**
+     * @return the nodes, valid up to {@link #size()}
+     */
+    public final Node[] getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * @return the number of edges between the end nodes of each edge, in both directions
+     */
+    public final int[] getParallelCount() {
+        return this.parallelCount;
+    }
+
+    /**
+     * @return the position of each edge among the edges from its source to its target
+     */
+    public final int[] getParallelIndex() {
+        return this.parallelIndex;
+    }
+
+    /**
+     * @return the node index of the source of each edge
+     */
+    public final int[] getSource() {
+        return this.source;
+    }
+
+    /**
+     * @return the node index of the target of each edge
+     */
+    public final int[] getTarget() {
+        return this.target;
+    }
+
+    /**
+     * @return the topology the nodes and edges were copied for, it changes whenever they do
+     */
+    public final long getTopology() {
+        return this.topology;
+    }
+
+    /**
+     * @return the x coordinates of the nodes
+     */
+    public final double[] getX() {
+        return this.x;
+    }
+
+    /**
+     * @return the y coordinates of the nodes
+     */
+    public final double[] getY() {
+        return this.y;
+    }
+
+    final boolean isInUse() {
+        return this.readers.get() != 0;
+    }
+
+    /**
+     * Hands the snapshot back to the layout, it must not be read afterwards.
+     */
+    public final void release() {
+        this.readers.decrementAndGet();
+    }
+
+    /**
+     * @return the number of nodes
+     */
+    public final int size() {
+        return this.size;
+    }
+}
@@ -0,0 +1,83 @@
+/*  Copyright (c) 2010 Xiaoyun Zhu
+ * 
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy  
+ *  of this software and associated documentation files (the "Software"), to deal  
+ *  in the Software without restriction, including without limitation the rights  
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell  
+ *  copies of the Software, and to permit persons to whom the Software is  
+ *  furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in  
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR  
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,  
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER  
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,  
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
+ *  THE SOFTWARE.  
+ */
+package cn.kk.forcedgraph.layout;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event of one {@link GraphRenderer} tick, only committed while a recording enables it.
+ * 
+ * @author x_kez
+ * 
+ */
+@Name("cn.kk.forcedgraph.LayoutTick")
+@Label("Layout Tick")
+@Category("Force Graph")
+@Description("One frame of the force directed layout")
+@StackTrace(false)
+final class LayoutTickEvent extends Event {
+    @Label("Layout")
+    String layout;
+    @Label("Steps")
+    int steps;
+    @Label("Repulsion")
+    @Timespan
+    long repulsion;
+    @Label("Springs")
+    @Timespan
+    long springs;
+    @Label("Centre Attraction")
+    @Timespan
+    long centre;
+    @Label("Integration")
+    @Timespan
+    long integration;
+    @Label("Spatial Index")
+    @Timespan
+    long spatialIndex;
+    @Label("Bounding Box")
+    @Timespan
+    long boundingBox;
+    @Label("Snapshot")
+    @Timespan
+    long snapshot;
+    @Label("Render Callback")
+    @Timespan
+    long render;
+    @Label("Lock Wait")
+    @Description("Time the tick waited for the layout monitor")
+    @Timespan
+    long lockWait;
+    @Label("Total Energy")
+    double energy;
+    @Label("Iterations")
+    long iterations;
+    @Label("Nodes")
+    int nodes;
+    @Label("Edges")
+    int edges;
+}
@@ -0,0 +1,338 @@
+/*  Copyright (c) 2010 Xiaoyun Zhu
+ * 
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy  
+ *  of this software and associated documentation files (the "Software"), to deal  
+ *  in the Software without restriction, including without limitation the rights  
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell  
+ *  copies of the Software, and to permit persons to whom the Software is  
+ *  furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in  
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR  
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,  
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER  
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,  
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
+ *  THE SOFTWARE.  
+ */
+package cn.kk.forcedgraph.layout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import cn.kk.forcedgraph.bean.EdgeData;
+import cn.kk.forcedgraph.bean.NodeData;
+import cn.kk.forcedgraph.graph.Edge;
+import cn.kk.forcedgraph.graph.Graph;
+import cn.kk.forcedgraph.graph.Node;
+import cn.kk.forcedgraph.graph.Point;
+
+/**
+ * Multilevel layout in the style of Walshaw: the graph is coarsened by heavy edge matching until it is small, the
+ * coarsest level is laid out from scratch and every finer level starts from the positions of its coarse parents and is
+ * refined with the ordinary force model. A coarse node weighs as much as the nodes merged into it, a coarse spring is
+ * as stiff as the edges merged into it, and springs get longer with every coarser level.
+ * 
+ * @author x_kez
+ * 
+ */
+final class MultilevelLayout {
+    // levels with fewer nodes are not coarsened any further
+    private static final int MIN_NODES = 50;
+    // coarsening stalls when a level keeps more than this share of its nodes
+    private static final double MIN_REDUCTION = 0.8;
+    // levels with more nodes always use Barnes-Hut repulsion
+    private static final int EXACT_LIMIT = 2000;
+    // spread of children around the position of their coarse parent
+    private static final double JITTER = 0.5;
+    // natural spring length of a level relative to the next finer one, after Walshaw
+    private static final double LEVEL_LENGTH = Math.sqrt(7d / 4d);
+
+    /**
+     * One level of the hierarchy, with nodes and edges as plain arrays.
+     */
+    private static final class Level {
+        private final int size;
+        // number of original nodes merged into each node
+        private final int[] weight;
+        private final int[] source;
+        private final int[] target;
+        // number of original edges merged into each edge
+        private final int[] multiplicity;
+        private final int edgeCount;
+        // coarse node every node of this level was merged into, null for the coarsest level
+        private int[] parent;
+        private double[] x;
+        private double[] y;
+
+        private Level(final int size, final int[] weight, final int[] source, final int[] target,
+                final int[] multiplicity, final int edgeCount) {
+            this.size = size;
+            this.weight = weight;
+            this.source = source;
+            this.target = target;
+            this.multiplicity = multiplicity;
+            this.edgeCount = edgeCount;
+        }
+    }
+
+    private static final Level coarsen(final Level fine, final Random random) {
+        final int n = fine.size;
+        final int m = fine.edgeCount;
+
+        // undirected adjacency in compressed rows
+        final int[] offsets = new int[n + 1];
+        for (int e = 0; e < m; e++) {
+            offsets[fine.source[e] + 1]++;
+            offsets[fine.target[e] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        final int[] fill = new int[n];
+        final int[] neighbours = new int[2 * m];
+        final int[] multiplicity = new int[2 * m];
+        for (int e = 0; e < m; e++) {
+            final int s = fine.source[e];
+            final int t = fine.target[e];
+            int k = offsets[s] + fill[s]++;
+            neighbours[k] = t;
+            multiplicity[k] = fine.multiplicity[e];
+            k = offsets[t] + fill[t]++;
+            neighbours[k] = s;
+            multiplicity[k] = fine.multiplicity[e];
+        }
+
+        // heavy edge matching in random order, preferring light partners to keep clusters balanced
+        final int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1);
+            final int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        final int[] parent = new int[n];
+        Arrays.fill(parent, -1);
+        int size = 0;
+        for (int o = 0; o < n; o++) {
+            final int u = order[o];
+            if (parent[u] != -1) {
+                continue;
+            }
+            int best = -1;
+            double bestScore = 0d;
+            for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                final int v = neighbours[k];
+                if (v != u && parent[v] == -1) {
+                    final double score = multiplicity[k] / (double) (fine.weight[u] + fine.weight[v]);
+                    if (score > bestScore) {
+                        best = v;
+                        bestScore = score;
+                    }
+                }
+            }
+            parent[u] = size;
+            if (best != -1) {
+                parent[best] = size;
+            }
+            size++;
+        }
+        if (size > n * MIN_REDUCTION) {
+            return null;
+        }
+
+        final int[] weight = new int[size];
+        for (int i = 0; i < n; i++) {
+            weight[parent[i]] += fine.weight[i];
+        }
+
+        // merge parallel edges: bucket by the smaller coarse end, deduplicate each bucket with a marker array
+        final int[] bucketOffsets = new int[size + 1];
+        for (int e = 0; e < m; e++) {
+            final int cs = parent[fine.source[e]];
+            final int ct = parent[fine.target[e]];
+            if (cs != ct) {
+                bucketOffsets[Math.min(cs, ct) + 1]++;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            bucketOffsets[i + 1] += bucketOffsets[i];
+        }
+        final int bucketed = bucketOffsets[size];
+        final int[] bucketFill = new int[size];
+        final int[] bucketOther = new int[bucketed];
+        final int[] bucketMultiplicity = new int[bucketed];
+        for (int e = 0; e < m; e++) {
+            final int cs = parent[fine.source[e]];
+            final int ct = parent[fine.target[e]];
+            if (cs != ct) {
+                final int low = Math.min(cs, ct);
+                final int k = bucketOffsets[low] + bucketFill[low]++;
+                bucketOther[k] = Math.max(cs, ct);
+                bucketMultiplicity[k] = fine.multiplicity[e];
+            }
+        }
+        final int[] source = new int[bucketed];
+        final int[] target = new int[bucketed];
+        final int[] edgeMultiplicity = new int[bucketed];
+        final int[] seen = new int[size];
+        final int[] position = new int[size];
+        int edgeCount = 0;
+        for (int low = 0; low < size; low++) {
+            for (int k = bucketOffsets[low]; k < bucketOffsets[low + 1]; k++) {
+                final int high = bucketOther[k];
+                if (seen[high] == low + 1) {
+                    edgeMultiplicity[position[high]] += bucketMultiplicity[k];
+                } else {
+                    seen[high] = low + 1;
+                    position[high] = edgeCount;
+                    source[edgeCount] = low;
+                    target[edgeCount] = high;
+                    edgeMultiplicity[edgeCount] = bucketMultiplicity[k];
+                    edgeCount++;
+                }
+            }
+        }
+        fine.parent = parent;
+        return new Level(size, weight, source, target, edgeMultiplicity, edgeCount);
+    }
+
+    static LayoutResult layout(final Graph graph, final LayoutOptions options) {
+        final LayoutRun run = new LayoutRun(options);
+        final Random random = options.getSeed() == null ? new Random() : new Random(options.getSeed().longValue());
+
+        // finest level from the graph itself
+        final List<Node> nodes = new ArrayList<Node>(graph.getNodes());
+        final Map<Node, Integer> indices = new HashMap<Node, Integer>(nodes.size() * 2);
+        for (int i = 0; i < nodes.size(); i++) {
+            indices.put(nodes.get(i), Integer.valueOf(i));
+        }
+        final int[] source = new int[graph.getEdges().size()];
+        final int[] target = new int[source.length];
+        final int[] multiplicity = new int[source.length];
+        int edgeCount = 0;
+        double length = 0d;
+        for (Edge edge : graph.getEdges()) {
+            final int s = indices.get(edge.getSource()).intValue();
+            final int t = indices.get(edge.getTarget()).intValue();
+            if (s != t) {
+                source[edgeCount] = s;
+                target[edgeCount] = t;
+                multiplicity[edgeCount] = 1;
+                edgeCount++;
+                length += edge.getData().getLength();
+            }
+        }
+        // coarse springs scale the mean length of the graph's springs
+        length = edgeCount == 0 ? 1d : length / edgeCount;
+        final int[] weight = new int[nodes.size()];
+        Arrays.fill(weight, 1);
+        final List<Level> levels = new ArrayList<Level>();
+        levels.add(new Level(nodes.size(), weight, source, target, multiplicity, edgeCount));
+
+        Level level = levels.get(0);
+        while (level.size > MIN_NODES) {
+            level = coarsen(level, random);
+            if (level == null) {
+                break;
+            }
+            levels.add(level);
+        }
+
+        // coarsest level from random positions, then prolong and refine towards the graph
+        final Level coarsest = levels.get(levels.size() - 1);
+        coarsest.x = new double[coarsest.size];
+        coarsest.y = new double[coarsest.size];
+        for (int i = 0; i < coarsest.size; i++) {
+            coarsest.x[i] = 10.0 * (random.nextDouble() - 0.5);
+            coarsest.y[i] = 10.0 * (random.nextDouble() - 0.5);
+        }
+        boolean running = true;
+        for (int l = levels.size() - 1; l > 0; l--) {
+            final Level current = levels.get(l);
+            if (running) {
+                running = refine(current, length * Math.pow(LEVEL_LENGTH, l), options, run, options.getLevelIterations());
+            }
+            prolong(current, levels.get(l - 1), random);
+        }
+
+        final Level finest = levels.get(0);
+        final ForceDirectedLayout layout = ForceDirectedLayout.detached(graph, options);
+        try {
+            for (int i = 0; i < finest.size; i++) {
+                layout.getPoint(nodes.get(i)).setPosition(finest.x[i], finest.y[i]);
+            }
+            if (running) {
+                layout.setBarnesHut(options.isBarnesHut() || finest.size > EXACT_LIMIT);
+                run.relax(layout, Integer.MAX_VALUE);
+            }
+            return run.result(layout.getPositions());
+        } finally {
+            layout.close();
+        }
+    }
+
+    private static final void prolong(final Level coarse, final Level fine, final Random random) {
+        fine.x = new double[fine.size];
+        fine.y = new double[fine.size];
+        for (int i = 0; i < fine.size; i++) {
+            final int p = fine.parent[i];
+            fine.x[i] = coarse.x[p] + JITTER * (random.nextDouble() - 0.5);
+            fine.y[i] = coarse.y[p] + JITTER * (random.nextDouble() - 0.5);
+        }
+    }
+
+    /**
+     * Relaxes a coarse level as a graph of its own, with springs of the given length.
+     * 
+     * @return false when the run is over
+     */
+    private static final boolean refine(final Level level, final double length, final LayoutOptions options,
+            final LayoutRun run, final int limit) {
+        final Graph graph = new Graph();
+        final Node[] nodes = new Node[level.size];
+        graph.batch(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < level.size; i++) {
+                    nodes[i] = graph.newNode(new NodeData().mass(level.weight[i]));
+                }
+                for (int e = 0; e < level.edgeCount; e++) {
+                    graph.newEdge(nodes[level.source[e]], nodes[level.target[e]], new EdgeData().length(length)
+                            .stiffness(level.multiplicity[e]));
+                }
+            }
+        });
+        final ForceDirectedLayout layout = ForceDirectedLayout.detached(graph, options);
+        try {
+            layout.setBarnesHut(options.isBarnesHut() || level.size > EXACT_LIMIT);
+            final Point[] points = new Point[level.size];
+            for (int i = 0; i < level.size; i++) {
+                points[i] = layout.getPoint(nodes[i]);
+                points[i].setPosition(level.x[i], level.y[i]);
+            }
+            final boolean running = run.relax(layout, limit);
+            for (int i = 0; i < level.size; i++) {
+                level.x[i] = points[i].getX();
+                level.y[i] = points[i].getY();
+            }
+            return running;
+        } finally {
+            layout.close();
+        }
+    }
+
+    private MultilevelLayout() {
+
+    }
+}
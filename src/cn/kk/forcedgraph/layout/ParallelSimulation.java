@@ -0,0 +1,279 @@
+/*  Copyright (c) 2010 Xiaoyun Zhu
+ * 
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy  
+ *  of this software and associated documentation files (the "Software"), to deal  
+ *  in the Software without restriction, including without limitation the rights  
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell  
+ *  copies of the Software, and to permit persons to whom the Software is  
+ *  furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in  
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR  
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,  
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER  
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,  
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
+ *  THE SOFTWARE.  
+ */
+package cn.kk.forcedgraph.layout;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import cn.kk.forcedgraph.graph.PointStore;
+import cn.kk.forcedgraph.graph.Spring;
+import cn.kk.forcedgraph.graph.SpringStore;
+
+/**
+ * Runs one simulation step of a {@link ForceDirectedLayout} on a fork/join pool. Every worker owns a fixed slice of
+ * the repulsion pairs, springs and points and accumulates forces into its own buffer; the buffers are summed in worker
+ * order before integration, so no locks are needed and results only depend on the number of workers.
+ * 
+ * @author x_kez
+ * 
+ */
+public final class ParallelSimulation {
+    private static final int PHASE_FORCES = 0;
+    private static final int PHASE_INTEGRATE = 1;
+
+    private final class Worker extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int index;
+        private final double[] out = new double[2];
+        private final int[] stack = new int[QuadTree.STACK_SIZE];
+        private double[] fx = new double[0];
+        private double[] fy = new double[0];
+
+        Worker(final int index) {
+            this.index = index;
+        }
+
+        @Override
+        protected void compute() {
+            if (ParallelSimulation.this.phase == PHASE_FORCES) {
+                forces(this);
+            } else {
+                integrate(this);
+            }
+        }
+    }
+
+    private final class Phase extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+            for (Worker w : ParallelSimulation.this.workers) {
+                w.reinitialize();
+            }
+            ForkJoinTask.invokeAll(ParallelSimulation.this.workers);
+        }
+    }
+
+    private final ForceDirectedLayout layout;
+    private final ForkJoinPool pool;
+    private final Worker[] workers;
+    private final Phase root;
+    private int phase;
+    private double velocityTimeStep;
+    private double positionTimeStep;
+
+    public ParallelSimulation(final ForceDirectedLayout layout, final int parallelism) {
+        this.layout = layout;
+        this.pool = new ForkJoinPool(parallelism);
+        this.workers = new Worker[parallelism];
+        for (int i = 0; i < parallelism; i++) {
+            this.workers[i] = new Worker(i);
+        }
+        this.root = new Phase();
+    }
+
+    private final void forces(final Worker w) {
+        final PointStore points = this.layout.getPoints();
+        final int size = points.size();
+        final double[] x = points.getX();
+        final double[] y = points.getY();
+        final double[] mass = points.getMass();
+        final boolean[] inert = points.getInert();
+        if (w.fx.length < x.length) {
+            w.fx = new double[x.length];
+            w.fy = new double[x.length];
+        }
+        final double[] fx = w.fx;
+        final double[] fy = w.fy;
+        final int workerCount = this.workers.length;
+        final double repulsion = this.layout.getRepulsion();
+
+        // repulsion
+        if (this.layout.isBarnesHut()) {
+            final QuadTree quadTree = this.layout.getQuadTree();
+            final double theta = this.layout.getTheta();
+            final int from = slice(size, w.index, workerCount);
+            final int to = slice(size, w.index + 1, workerCount);
+            for (int i = from; i < to; i++) {
+                if (inert[i]) {
+                    continue;
+                }
+                final double[] f = quadTree.force(i, x[i], y[i], theta, repulsion, w.out, w.stack);
+                if (mass[i] != 0d) {
+                    fx[i] += f[0] / mass[i];
+                    fy[i] += f[1] / mass[i];
+                }
+            }
+        } else {
+            // rows of the upper triangle, sized so that every worker gets about the same number of pairs
+            final int from = triangleSlice(size, w.index, workerCount);
+            final int to = triangleSlice(size, w.index + 1, workerCount);
+            for (int i = from; i < to; i++) {
+                final double x1 = x[i];
+                final double y1 = y[i];
+                final double m1 = inert[i] ? 0d : mass[i];
+                for (int j = i + 1; j < size; j++) {
+                    final double m2 = inert[j] ? 0d : mass[j];
+                    if (m1 == 0d && m2 == 0d) {
+                        continue;
+                    }
+                    final double dx = x1 - x[j];
+                    final double dy = y1 - y[j];
+                    final double magnitude = Math.sqrt(dx * dx + dy * dy);
+                    if (magnitude != 0d) {
+                        // avoid massive forces at small distances (and divide by zero)
+                        final double distance = magnitude + 0.1;
+                        final double f = repulsion / (magnitude * distance * distance);
+                        if (m1 != 0d) {
+                            fx[i] += dx * f / m1;
+                            fy[i] += dy * f / m1;
+                        }
+                        if (m2 != 0d) {
+                            fx[j] -= dx * f / m2;
+                            fy[j] -= dy * f / m2;
+                        }
+                    }
+                }
+            }
+        }
+
+        // springs
+        final SpringStore springs = this.layout.getSprings();
+        final int springCount = springs.size();
+        final int springsTo = slice(springCount, w.index + 1, workerCount);
+        for (int s = slice(springCount, w.index, workerCount); s < springsTo; s++) {
+            final Spring spring = springs.get(s);
+            final int i = spring.getPoint1().getIndex();
+            final int j = spring.getPoint2().getIndex();
+            if (inert[i] && inert[j]) {
+                continue;
+            }
+            final double dx = x[j] - x[i];
+            final double dy = y[j] - y[i];
+            final double magnitude = Math.sqrt(dx * dx + dy * dy);
+            if (magnitude != 0d) {
+                final double displacement = spring.getLength() - magnitude;
+                final double f = 0.5 * spring.getSpringStiffness() * displacement / magnitude;
+                if (mass[i] != 0d && !inert[i]) {
+                    fx[i] -= dx * f / mass[i];
+                    fy[i] -= dy * f / mass[i];
+                }
+                if (mass[j] != 0d && !inert[j]) {
+                    fx[j] += dx * f / mass[j];
+                    fy[j] += dy * f / mass[j];
+                }
+            }
+        }
+    }
+
+    private final void integrate(final Worker w) {
+        final PointStore points = this.layout.getPoints();
+        final int size = points.size();
+        final double[] x = points.getX();
+        final double[] y = points.getY();
+        final double[] vx = points.getVx();
+        final double[] vy = points.getVy();
+        final double[] fx = points.getFx();
+        final double[] fy = points.getFy();
+        final double[] mass = points.getMass();
+        final boolean[] inert = points.getInert();
+        final double centre = -this.layout.getRepulsion() / 50.0;
+        final double damping = this.layout.getDamping();
+        final int to = slice(size, w.index + 1, this.workers.length);
+        for (int i = slice(size, w.index, this.workers.length); i < to; i++) {
+            double forceX = fx[i];
+            double forceY = fy[i];
+            // reduce in worker order to stay deterministic
+            for (Worker other : this.workers) {
+                forceX += other.fx[i];
+                forceY += other.fy[i];
+                other.fx[i] = 0d;
+                other.fy[i] = 0d;
+            }
+            if (inert[i]) {
+                fx[i] = 0d;
+                fy[i] = 0d;
+                continue;
+            }
+            // attract to centre
+            if (mass[i] != 0d) {
+                forceX += x[i] * centre / mass[i];
+                forceY += y[i] * centre / mass[i];
+            }
+            vx[i] = (vx[i] + forceX * this.velocityTimeStep) * damping;
+            vy[i] = (vy[i] + forceY * this.velocityTimeStep) * damping;
+            fx[i] = 0d;
+            fy[i] = 0d;
+            x[i] += vx[i] * this.positionTimeStep;
+            y[i] += vy[i] * this.positionTimeStep;
+        }
+    }
+
+    /**
+     * @return the number of workers
+     */
+    public final int getParallelism() {
+        return this.workers.length;
+    }
+
+    private final void run(final int phase) {
+        this.phase = phase;
+        this.root.reinitialize();
+        this.pool.invoke(this.root);
+    }
+
+    public void shutdown() {
+        this.pool.shutdown();
+    }
+
+    private static final int slice(final int size, final int k, final int count) {
+        return (int) ((long) size * k / count);
+    }
+
+    /**
+     * Same as {@link ForceDirectedLayout#applyCoulombsLaw()}, {@link ForceDirectedLayout#applyHookesLaw()},
+     * {@link ForceDirectedLayout#attractToCentre()}, {@link ForceDirectedLayout#updateVelocity(double)} and
+     * {@link ForceDirectedLayout#updatePosition(double)} in a row.
+     */
+    public void step(final double velocityTimeStep, final double positionTimeStep) {
+        this.velocityTimeStep = velocityTimeStep;
+        this.positionTimeStep = positionTimeStep;
+        final LayoutMetrics metrics = this.layout.getMetrics();
+        long time = LayoutMetrics.start(metrics);
+        if (this.layout.isBarnesHut()) {
+            this.layout.buildQuadTree();
+        }
+        run(PHASE_FORCES);
+        time = LayoutMetrics.lap(metrics, LayoutMetrics.REPULSION, time);
+        run(PHASE_INTEGRATE);
+        LayoutMetrics.lap(metrics, LayoutMetrics.INTEGRATION, time);
+    }
+
+    private static final int triangleSlice(final int size, final int k, final int count) {
+        if (k >= count) {
+            return size;
+        }
+        // row r starts after r * size - r * (r + 1) / 2 pairs, solve for the k-th fraction of all pairs
+        return (int) (size - size * Math.sqrt(1d - (double) k / count));
+    }
+}
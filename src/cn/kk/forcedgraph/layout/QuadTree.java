@@ -0,0 +1,255 @@
+/*  Copyright (c) 2010 Xiaoyun Zhu
+ * 
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy  
+ *  of this software and associated documentation files (the "Software"), to deal  
+ *  in the Software without restriction, including without limitation the rights  
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell  
+ *  copies of the Software, and to permit persons to whom the Software is  
+ *  furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in  
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR  
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,  
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER  
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,  
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
+ *  THE SOFTWARE.  
+ */
+package cn.kk.forcedgraph.layout;
+
+import java.util.Arrays;
+
+/**
+ * Barnes-Hut quadtree over a set of point charges. Cells and bodies are kept in flat, reusable arrays so that the
+ * tree can be rebuilt every simulation step without creating garbage once the arrays have grown to the graph size.
+ * 
+ * @author x_kez
+ * 
+ */
+public final class QuadTree {
+    // coincident points would otherwise be subdivided forever
+    private static final int MAX_DEPTH = 24;
+    /**
+     * traversal stack size that is always sufficient for a tree of at most MAX_DEPTH levels
+     */
+    public static final int STACK_SIZE = 4 * (MAX_DEPTH + 1);
+    private static final int NONE = -1;
+
+    // bodies
+    private int bodyCount;
+    private double[] bodyX = new double[16];
+    private double[] bodyY = new double[16];
+    private int[] bodyNext = new int[16];
+
+    // cells, children of a cell are stored consecutively starting at cellChild
+    private int cellCount;
+    private double[] cellX = new double[16];
+    private double[] cellY = new double[16];
+    private double[] cellHalf = new double[16];
+    private double[] cellComX = new double[16];
+    private double[] cellComY = new double[16];
+    private int[] cellCharge = new int[16];
+    private int[] cellChild = new int[16];
+    private int[] cellBody = new int[16];
+    private int[] cellDepth = new int[16];
+
+    private final int[] stack = new int[STACK_SIZE];
+
+    private final double[] force = new double[2];
+
+    /**
+     * Resets the tree to an empty root cell covering the given square.
+     */
+    public void clear(final double minX, final double minY, final double maxX, final double maxY) {
+        final double half = Math.max(Math.max(maxX - minX, maxY - minY) / 2d, 1d);
+        this.bodyCount = 0;
+        this.cellCount = 0;
+        newCell((minX + maxX) / 2d, (minY + maxY) / 2d, half, 0);
+    }
+
+    /**
+     * Computes the repulsive force a unit charge at (x, y) receives from all bodies in the tree. Cells whose size to
+     * distance ratio is below theta are approximated by their centre of charge, theta = 0 gives the exact pairwise
+     * result. Cells containing (x, y) itself are always opened.
+     * 
+     * @param self
+     *            body index to ignore, or -1
+     * @return [fx, fy], the returned array is reused by the next call
+     */
+    public double[] force(final int self, final double x, final double y, final double theta,
+            final double repulsion) {
+        return force(self, x, y, theta, repulsion, this.force, this.stack);
+    }
+
+    /**
+     * Thread safe variant of {@link #force(int, double, double, double, double)} for concurrent readers of a tree that
+     * is no longer modified.
+     * 
+     * @param out
+     *            receives [fx, fy]
+     * @param stack
+     *            traversal scratch space of at least {@link #STACK_SIZE} elements
+     * @return out
+     */
+    public double[] force(final int self, final double x, final double y, final double theta,
+            final double repulsion, final double[] out, final int[] stack) {
+        double fx = 0d;
+        double fy = 0d;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            final int c = stack[--top];
+            if (this.cellCharge[c] == 0) {
+                continue;
+            }
+            final int child = this.cellChild[c];
+            if (child == NONE) {
+                for (int b = this.cellBody[c]; b != NONE; b = this.bodyNext[b]) {
+                    if (b != self) {
+                        final double dx = x - this.bodyX[b];
+                        final double dy = y - this.bodyY[b];
+                        final double magnitude = Math.sqrt(dx * dx + dy * dy);
+                        if (magnitude != 0d) {
+                            // avoid massive forces at small distances (and divide by zero)
+                            final double distance = magnitude + 0.1;
+                            final double f = repulsion / (magnitude * distance * distance);
+                            fx += dx * f;
+                            fy += dy * f;
+                        }
+                    }
+                }
+            } else {
+                final double dx = x - this.cellComX[c];
+                final double dy = y - this.cellComY[c];
+                final double magnitude = Math.sqrt(dx * dx + dy * dy);
+                final double half = this.cellHalf[c];
+                if (magnitude != 0d && 2d * half < theta * magnitude && !contains(c, x, y)) {
+                    final double distance = magnitude + 0.1;
+                    final double f = this.cellCharge[c] * repulsion / (magnitude * distance * distance);
+                    fx += dx * f;
+                    fy += dy * f;
+                } else {
+                    // at most 3 siblings per level stay on the stack, so STACK_SIZE never overflows
+                    stack[top++] = child;
+                    stack[top++] = child + 1;
+                    stack[top++] = child + 2;
+                    stack[top++] = child + 3;
+                }
+            }
+        }
+        out[0] = fx;
+        out[1] = fy;
+        return out;
+    }
+
+    /**
+     * @return number of bodies inserted since the last clear
+     */
+    public final int getBodyCount() {
+        return this.bodyCount;
+    }
+
+    /**
+     * Inserts a unit charge. Bodies are numbered in insertion order starting with 0.
+     * 
+     * @return the body index
+     */
+    public int insert(final double x, final double y) {
+        final int b = this.bodyCount++;
+        if (b == this.bodyX.length) {
+            final int capacity = b * 2;
+            this.bodyX = Arrays.copyOf(this.bodyX, capacity);
+            this.bodyY = Arrays.copyOf(this.bodyY, capacity);
+            this.bodyNext = Arrays.copyOf(this.bodyNext, capacity);
+        }
+        this.bodyX[b] = x;
+        this.bodyY[b] = y;
+        this.bodyNext[b] = NONE;
+
+        int c = 0;
+        while (true) {
+            // running centre of charge
+            final int charge = ++this.cellCharge[c];
+            this.cellComX[c] += (x - this.cellComX[c]) / charge;
+            this.cellComY[c] += (y - this.cellComY[c]) / charge;
+
+            final int child = this.cellChild[c];
+            if (child != NONE) {
+                c = child + quadrant(c, x, y);
+            } else if (this.cellBody[c] == NONE || this.cellDepth[c] >= MAX_DEPTH) {
+                this.bodyNext[b] = this.cellBody[c];
+                this.cellBody[c] = b;
+                return b;
+            } else {
+                split(c);
+                c = this.cellChild[c] + quadrant(c, x, y);
+            }
+        }
+    }
+
+    private final boolean contains(final int c, final double x, final double y) {
+        final double half = this.cellHalf[c];
+        return Math.abs(x - this.cellX[c]) <= half && Math.abs(y - this.cellY[c]) <= half;
+    }
+
+    private final int newCell(final double x, final double y, final double half, final int depth) {
+        final int c = this.cellCount++;
+        if (c == this.cellX.length) {
+            final int capacity = c * 2;
+            this.cellX = Arrays.copyOf(this.cellX, capacity);
+            this.cellY = Arrays.copyOf(this.cellY, capacity);
+            this.cellHalf = Arrays.copyOf(this.cellHalf, capacity);
+            this.cellComX = Arrays.copyOf(this.cellComX, capacity);
+            this.cellComY = Arrays.copyOf(this.cellComY, capacity);
+            this.cellCharge = Arrays.copyOf(this.cellCharge, capacity);
+            this.cellChild = Arrays.copyOf(this.cellChild, capacity);
+            this.cellBody = Arrays.copyOf(this.cellBody, capacity);
+            this.cellDepth = Arrays.copyOf(this.cellDepth, capacity);
+        }
+        this.cellX[c] = x;
+        this.cellY[c] = y;
+        this.cellHalf[c] = half;
+        this.cellComX[c] = 0d;
+        this.cellComY[c] = 0d;
+        this.cellCharge[c] = 0;
+        this.cellChild[c] = NONE;
+        this.cellBody[c] = NONE;
+        this.cellDepth[c] = depth;
+        return c;
+    }
+
+    private final int quadrant(final int c, final double x, final double y) {
+        return (x < this.cellX[c] ? 0 : 1) + (y < this.cellY[c] ? 0 : 2);
+    }
+
+    /**
+     * Turns a leaf holding bodies into an inner cell and pushes its bodies down one level.
+     */
+    private final void split(final int c) {
+        final double half = this.cellHalf[c] / 2d;
+        final int depth = this.cellDepth[c] + 1;
+        final double x = this.cellX[c];
+        final double y = this.cellY[c];
+        final int child = newCell(x - half, y - half, half, depth);
+        newCell(x + half, y - half, half, depth);
+        newCell(x - half, y + half, half, depth);
+        newCell(x + half, y + half, half, depth);
+        this.cellChild[c] = child;
+
+        int b = this.cellBody[c];
+        this.cellBody[c] = NONE;
+        while (b != NONE) {
+            final int next = this.bodyNext[b];
+            final int q = child + quadrant(c, this.bodyX[b], this.bodyY[b]);
+            final int charge = ++this.cellCharge[q];
+            this.cellComX[q] += (this.bodyX[b] - this.cellComX[q]) / charge;
+            this.cellComY[q] += (this.bodyY[b] - this.cellComY[q]) / charge;
+            this.bodyNext[b] = this.cellBody[q];
+            this.cellBody[q] = b;
+            b = next;
+        }
+    }
+}
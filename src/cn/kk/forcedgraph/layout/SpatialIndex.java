@@ -0,0 +1,304 @@
+/*  Copyright (c) 2010 Xiaoyun Zhu
+ * 
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy  
+ *  of this software and associated documentation files (the "Software"), to deal  
+ *  in the Software without restriction, including without limitation the rights  
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell  
+ *  copies of the Software, and to permit persons to whom the Software is  
+ *  furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in  
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR  
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,  
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER  
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,  
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
+ *  THE SOFTWARE.  
+ */
+package cn.kk.forcedgraph.layout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import cn.kk.forcedgraph.graph.Node;
+import cn.kk.forcedgraph.graph.PointStore;
+
+/**
+ * Uniform grid over a copy of the point positions of a layout, answering nearest, k-nearest and within-radius
+ * queries by searching rings of cells around the query position. With about two points per cell a query touches a
+ * constant number of cells on average. A built grid is never modified, the layout builds the next one into a spare
+ * instance and swaps them, so queries from other threads need no lock. Results carry the node and its indexed
+ * coordinates, never a view into the point store.
+ * 
+ * @author x_kez
+ * 
+ */
+public final class SpatialIndex {
+    private static final double POINTS_PER_CELL = 2d;
+
+    private final AtomicInteger readers = new AtomicInteger();
+
+    private int size;
+    private double[] x = new double[16];
+    private double[] y = new double[16];
+    private Node[] nodes = new Node[16];
+    // index of every slot's point in the store
+    private int[] indices = new int[16];
+    private int[] cellStart = new int[17];
+    private int[] cellOf = new int[16];
+
+    private double minX;
+    private double minY;
+    private double cellSize = 1d;
+    private int columns = 1;
+    private int rows = 1;
+
+    final void acquire() {
+        this.readers.incrementAndGet();
+    }
+
+    /**
+     * Rebuilds the grid from the current state of the store.
+     */
+    void build(final PointStore store) {
+        final int n = store.size();
+        final double[] sx = store.getX();
+        final double[] sy = store.getY();
+        if (this.x.length < n) {
+            final int capacity = Math.max(n, this.x.length * 2);
+            this.x = new double[capacity];
+            this.y = new double[capacity];
+            this.nodes = new Node[capacity];
+            this.indices = new int[capacity];
+            this.cellOf = new int[capacity];
+        }
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, sx[i]);
+            minY = Math.min(minY, sy[i]);
+            maxX = Math.max(maxX, sx[i]);
+            maxY = Math.max(maxY, sy[i]);
+        }
+        if (n == 0) {
+            minX = minY = 0d;
+            maxX = maxY = 1d;
+        }
+        final double width = Math.max(maxX - minX, 1e-9);
+        final double height = Math.max(maxY - minY, 1e-9);
+        this.cellSize = Math.max(Math.sqrt(width * height * POINTS_PER_CELL / Math.max(n, 1)), 1e-9);
+        this.columns = Math.max(1, Math.min((int) (width / this.cellSize) + 1, 4096));
+        this.rows = Math.max(1, Math.min((int) (height / this.cellSize) + 1, 4096));
+        this.cellSize = Math.max(width / this.columns, height / this.rows) * (1d + 1e-9);
+        this.minX = minX;
+        this.minY = minY;
+
+        // counting sort of the points by cell
+        final int cells = this.columns * this.rows;
+        if (this.cellStart.length < cells + 1) {
+            this.cellStart = new int[cells + 1];
+        } else {
+            Arrays.fill(this.cellStart, 0, cells + 1, 0);
+        }
+        for (int i = 0; i < n; i++) {
+            final int c = cell(column(sx[i]), row(sy[i]));
+            this.cellOf[i] = c;
+            this.cellStart[c + 1]++;
+        }
+        for (int c = 0; c < cells; c++) {
+            this.cellStart[c + 1] += this.cellStart[c];
+        }
+        for (int i = 0; i < n; i++) {
+            final int slot = this.cellStart[this.cellOf[i]]++;
+            this.x[slot] = sx[i];
+            this.y[slot] = sy[i];
+            this.nodes[slot] = store.getNode(i);
+            this.indices[slot] = i;
+        }
+        // cellStart[c] now holds the end of cell c, shift back to starts
+        for (int c = cells; c > 0; c--) {
+            this.cellStart[c] = this.cellStart[c - 1];
+        }
+        this.cellStart[0] = 0;
+        // drop references to removed nodes
+        Arrays.fill(this.nodes, n, Math.max(n, this.size), null);
+        this.size = n;
+    }
+
+    private final int cell(final int column, final int row) {
+        return row * this.columns + column;
+    }
+
+    private final int column(final double x) {
+        return Math.max(0, Math.min(this.columns - 1, (int) ((x - this.minX) / this.cellSize)));
+    }
+
+    /**
+     * Distance from (x, y) to the outside of the block of cells [c0, c1] x [r0, r1], 0 if outside of it. Points not
+     * yet visited lie at least that far away.
+     */
+    private final double inset(final double x, final double y, final int c0, final int r0, final int c1, final int r1) {
+        if (c0 <= 0 && r0 <= 0 && c1 >= this.columns - 1 && r1 >= this.rows - 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        final double left = c0 <= 0 ? Double.POSITIVE_INFINITY : x - (this.minX + c0 * this.cellSize);
+        final double right = c1 >= this.columns - 1 ? Double.POSITIVE_INFINITY : this.minX + (c1 + 1)
+                * this.cellSize - x;
+        final double bottom = r0 <= 0 ? Double.POSITIVE_INFINITY : y - (this.minY + r0 * this.cellSize);
+        final double top = r1 >= this.rows - 1 ? Double.POSITIVE_INFINITY : this.minY + (r1 + 1) * this.cellSize - y;
+        return Math.max(0d, Math.min(Math.min(left, right), Math.min(bottom, top)));
+    }
+
+    final boolean isInUse() {
+        return this.readers.get() != 0;
+    }
+
+    /**
+     * @return the closest point, distance is -1 if the index is empty
+     */
+    public DistanceResult nearest(final double x, final double y) {
+        final List<DistanceResult> results = nearest(x, y, 1);
+        return results.isEmpty() ? new DistanceResult() : results.get(0);
+    }
+
+    /**
+     * @return up to k closest points, closest first
+     */
+    public List<DistanceResult> nearest(final double x, final double y, final int k) {
+        final List<DistanceResult> results = new ArrayList<DistanceResult>(Math.max(0, Math.min(k, this.size)));
+        if (k <= 0 || this.size == 0) {
+            return results;
+        }
+        // sorted candidates, slots into the grid arrays
+        final int[] best = new int[Math.min(k, this.size)];
+        final double[] bestDistance = new double[best.length];
+        int found = 0;
+
+        final int cx = column(x);
+        final int cy = row(y);
+        for (int r = 0;; r++) {
+            final int c0 = cx - r;
+            final int c1 = cx + r;
+            final int r0 = cy - r;
+            final int r1 = cy + r;
+            for (int row = Math.max(0, r0); row <= Math.min(this.rows - 1, r1); row++) {
+                final boolean edgeRow = row == r0 || row == r1;
+                for (int column = Math.max(0, c0); column <= Math.min(this.columns - 1, c1); column++) {
+                    if (!edgeRow && column != c0 && column != c1) {
+                        // inner cells were visited by earlier rings
+                        continue;
+                    }
+                    final int c = cell(column, row);
+                    for (int slot = this.cellStart[c]; slot < this.cellStart[c + 1]; slot++) {
+                        final double dx = this.x[slot] - x;
+                        final double dy = this.y[slot] - y;
+                        final double d = Math.sqrt(dx * dx + dy * dy);
+                        if (found < best.length || d < bestDistance[found - 1]) {
+                            int pos = found < best.length ? found++ : found - 1;
+                            while (pos > 0 && bestDistance[pos - 1] > d) {
+                                best[pos] = best[pos - 1];
+                                bestDistance[pos] = bestDistance[pos - 1];
+                                pos--;
+                            }
+                            best[pos] = slot;
+                            bestDistance[pos] = d;
+                        }
+                    }
+                }
+            }
+            final double reach = inset(x, y, c0, r0, c1, r1);
+            if (found == best.length && bestDistance[found - 1] <= reach || reach == Double.POSITIVE_INFINITY) {
+                break;
+            }
+        }
+        for (int i = 0; i < found; i++) {
+            final int slot = best[i];
+            results.add(new DistanceResult(this.nodes[slot], this.x[slot], this.y[slot], bestDistance[i]));
+        }
+        return results;
+    }
+
+    final void release() {
+        this.readers.decrementAndGet();
+    }
+
+    private final int row(final double y) {
+        return Math.max(0, Math.min(this.rows - 1, (int) ((y - this.minY) / this.cellSize)));
+    }
+
+    /**
+     * @return number of indexed points
+     */
+    public final int size() {
+        return this.size;
+    }
+
+    /**
+     * @return all points not farther than radius, closest first
+     */
+    public List<DistanceResult> within(final double x, final double y, final double radius) {
+        final List<DistanceResult> results = new ArrayList<DistanceResult>();
+        if (this.size == 0 || radius < 0d) {
+            return results;
+        }
+        final int c0 = column(x - radius);
+        final int c1 = column(x + radius);
+        final int r0 = row(y - radius);
+        final int r1 = row(y + radius);
+        for (int row = r0; row <= r1; row++) {
+            for (int column = c0; column <= c1; column++) {
+                final int c = cell(column, row);
+                for (int slot = this.cellStart[c]; slot < this.cellStart[c + 1]; slot++) {
+                    final double dx = this.x[slot] - x;
+                    final double dy = this.y[slot] - y;
+                    final double d = Math.sqrt(dx * dx + dy * dy);
+                    if (d <= radius) {
+                        results.add(new DistanceResult(this.nodes[slot], this.x[slot], this.y[slot], d));
+                    }
+                }
+            }
+        }
+        Collections.sort(results, DistanceResult.BY_DISTANCE);
+        return results;
+    }
+
+    /**
+     * Allocation free variant of {@link #within(double, double, double)} for the layout, in no particular order.
+     * 
+     * @param found
+     *            receives the store indices of the points
+     * @return the number of points not farther than radius, only as many as fit are written to found
+     */
+    final int within(final double x, final double y, final double radius, final int[] found) {
+        if (this.size == 0 || radius < 0d) {
+            return 0;
+        }
+        int count = 0;
+        final int c1 = column(x + radius);
+        final int r1 = row(y + radius);
+        for (int row = row(y - radius); row <= r1; row++) {
+            for (int column = column(x - radius); column <= c1; column++) {
+                final int c = cell(column, row);
+                for (int slot = this.cellStart[c]; slot < this.cellStart[c + 1]; slot++) {
+                    final double dx = this.x[slot] - x;
+                    final double dy = this.y[slot] - y;
+                    if (dx * dx + dy * dy <= radius * radius) {
+                        if (count < found.length) {
+                            found[count] = this.indices[slot];
+                        }
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+}
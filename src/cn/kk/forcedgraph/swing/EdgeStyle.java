@@ -0,0 +1,126 @@
+/*  Copyright (c) 2010 Xiaoyun Zhu
+ * 
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy  
+ *  of this software and associated documentation files (the "Software"), to deal  
+ *  in the Software without restriction, including without limitation the rights  
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell  
+ *  copies of the Software, and to permit persons to whom the Software is  
+ *  furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in  
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR  
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,  
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER  
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,  
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
+ *  THE SOFTWARE.  
+ */
+package cn.kk.forcedgraph.swing;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Paint;
+import java.awt.Stroke;
+
+import cn.kk.forcedgraph.bean.EdgeData;
+
+/**
+ * Swing appearance of an edge, attached with {@link EdgeData#style(Object)}.
+ * 
+ * @author x_kez
+ * 
+ */
+public class EdgeStyle {
+    public static final Stroke DEFAULT_STROKE = new BasicStroke(0.5f);
+    public static final Paint DEFAULT_PAINT = Color.BLACK;
+    public static final Font DEFAULT_FONT = GraphPanel.DEFAULT_LABEL_FONT.deriveFont(GraphPanel.DEFAULT_LABEL_FONT
+            .getSize2D() - 2f);
+    public static final Color DEFAULT_COLOR = new Color(0x007C23);
+    public static final Color DEFAULT_LABEL_COLOR = new Color(91, 166, 236);
+    public static final EdgeStyle DEFAULT = new EdgeStyle();
+
+    private Stroke lineStroke = DEFAULT_STROKE;
+    private Font font = DEFAULT_FONT;
+    private Color color = DEFAULT_COLOR;
+    private Color labelColor = DEFAULT_LABEL_COLOR;
+
+    public EdgeStyle() {
+
+    }
+
+    /**
+     * @param color
+     *            the color to set
+     */
+    public final EdgeStyle color(Color color) {
+        this.color = color;
+        return this;
+    }
+
+    /**
+     * @param font
+     *            the font to set
+     */
+    public EdgeStyle font(Font font) {
+        this.font = font;
+        return this;
+    }
+
+    /**
+     * @return the color
+     */
+    public final Color getColor() {
+        return color;
+    }
+
+    /**
+     * @return the font
+     */
+    public Font getFont() {
+        return font;
+    }
+
+    /**
+     * @return the labelColor
+     */
+    public Color getLabelColor() {
+        return labelColor;
+    }
+
+    /**
+     * @return the stroke
+     */
+    public Stroke getLineStroke() {
+        return lineStroke;
+    }
+
+    /**
+     * @param labelColor
+     *            the labelColor to set
+     */
+    public EdgeStyle labelColor(Color labelColor) {
+        this.labelColor = labelColor;
+        return this;
+    }
+
+    /**
+     * @param stroke
+     *            the stroke to set
+     */
+    public EdgeStyle lineStroke(Stroke stroke) {
+        this.lineStroke = stroke;
+        return this;
+    }
+
+    /**
+     * @return the style of the edge data, the default style if it has none
+     */
+    public static final EdgeStyle of(final EdgeData data) {
+        final Object style = data.getStyle();
+        return style instanceof EdgeStyle ? (EdgeStyle) style : DEFAULT;
+    }
+}
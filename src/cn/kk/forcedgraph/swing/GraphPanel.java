@@ -18,11 +18,10 @@
  *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
  *  THE SOFTWARE.  
  */
-package cn.kk.forcedgraph.layout;
+package cn.kk.forcedgraph.swing;
 
 import java.awt.Dimension;
 import java.awt.Font;
-import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.GraphicsConfiguration;
 import java.awt.GraphicsEnvironment;
@@ -30,8 +29,7 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.Set;
 
 import javax.swing.JPanel;
 
@@ -42,23 +40,25 @@ import cn.kk.forcedgraph.graph.Edge;
 import cn.kk.forcedgraph.graph.Graph;
 import cn.kk.forcedgraph.graph.Node;
 import cn.kk.forcedgraph.graph.Vector;
+import cn.kk.forcedgraph.layout.DistanceResult;
+import cn.kk.forcedgraph.layout.ForceDirectedLayout;
 import cn.kk.forcedgraph.listener.GraphFinishedListener;
-import cn.kk.forcedgraph.listener.NodeSelectedListener;
 
 public class GraphPanel extends JPanel implements GraphFinishedListener {
     private static final long serialVersionUID = 7657030046133585681L;
     private static final double ZOOM_FACTOR = 0.9;
     private static final int RENDERER_INTERVAL = 10;
     public static final Font DEFAULT_LABEL_FONT = new Font("Helvetica", Font.PLAIN, 12);
-    public static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor();
     private static final GraphicsEnvironment GRAPHICS_ENV = GraphicsEnvironment.getLocalGraphicsEnvironment();
-    public static final GraphicsConfiguration GRAPHICS_CONF = GRAPHICS_ENV.getDefaultScreenDevice()
-            .getDefaultConfiguration();
+    // null without a screen, the panel can still paint offscreen
+    public static final GraphicsConfiguration GRAPHICS_CONF = GraphicsEnvironment.isHeadless() ? null
+            : GRAPHICS_ENV.getDefaultScreenDevice().getDefaultConfiguration();
 
     private final ForceDirectedLayout layout;
     private final BoundingBox currentBB;
     private PainterBase painter;
-    private FontMetrics fontMetrics;
+    private Font labelFont;
+    private final LabelMetrics labelMetrics = new LabelMetrics(this);
     private final Renderer renderer;
     private Node selectedNode;
     private Node nearestNode;
@@ -129,7 +129,7 @@ public class GraphPanel extends JPanel implements GraphFinishedListener {
     }
 
     public Edge addEdge(Node node, Node otherNode, EdgeData edgeData) {
-        return this.layout.addEdge(node, otherNode, edgeData);
+        return this.layout.enqueueAddEdge(node, otherNode, edgeData);
     }
 
     public final void addGraphFinishedListener(final GraphFinishedListener l) {
@@ -139,7 +139,7 @@ public class GraphPanel extends JPanel implements GraphFinishedListener {
     }
 
     public Node addNode(NodeData nodeData) {
-        return this.layout.addNode(nodeData);
+        return this.layout.enqueueAddNode(nodeData);
     }
 
     public final void addNodeSelectedListener(final NodeSelectedListener l) {
@@ -149,7 +149,19 @@ public class GraphPanel extends JPanel implements GraphFinishedListener {
     }
 
     public final double calculateStringWidth(String text) {
-        return this.fontMetrics.stringWidth(text);
+        return this.labelMetrics.stringWidth(text, this.labelFont);
+    }
+
+    /**
+     * Clears selection and hover state referring to removed nodes.
+     */
+    final void forget(final Set<Node> removedNodes) {
+        if (removedNodes.contains(this.selectedNode)) {
+            this.selectedNode = null;
+        }
+        if (removedNodes.contains(this.nearestNode)) {
+            this.nearestNode = null;
+        }
     }
 
     public final Vector fromScreen(Vector s) {
@@ -167,10 +179,38 @@ public class GraphPanel extends JPanel implements GraphFinishedListener {
         return this.nearestNode;
     }
 
+    public final double getNodeHeight(final Node node) {
+        // Magic number with no explanation
+        return 20d;
+    }
+
+    public final double getNodeWidth(final Node node) {
+        final NodeData nodeData = node.getData();
+        return this.labelMetrics.stringWidth(nodeData.getLabel(), NodeStyle.of(nodeData).getFont()) + 12d;
+    }
+
     public final PainterBase getPainter() {
         return this.painter;
     }
 
+    /**
+     * Fills the mapping of {@link #toScreen(Vector)}, screen x is <code>x * t[0] + t[2]</code> and screen y is
+     * <code>y * t[1] + t[3]</code>, so whole frames convert without allocating vectors.
+     * 
+     * @param t
+     *            array of at least four to fill
+     * @return t
+     */
+    public final double[] getScreenTransform(final double[] t) {
+        final Vector bottomLeft = this.currentBB.getBottomLeft();
+        final Vector topRight = this.currentBB.getTopRight();
+        t[0] = this.painter.getWidth() * ZOOM_FACTOR / (topRight.getX() - bottomLeft.getX());
+        t[1] = this.painter.getHeight() * ZOOM_FACTOR / (topRight.getY() - bottomLeft.getY());
+        t[2] = getWidth() * (1d - ZOOM_FACTOR) / 2d - bottomLeft.getX() * t[0];
+        t[3] = getHeight() * (1d - ZOOM_FACTOR) / 2d - bottomLeft.getY() * t[1];
+        return t;
+    }
+
     /**
      * @return the selectedNode
      */
@@ -199,20 +239,16 @@ public class GraphPanel extends JPanel implements GraphFinishedListener {
         }
     }
 
-    private static final int MAX_FPS = 46;
-    private long lastPaint;
-
+    /**
+     * Copies the last frame, the {@link Renderer} limits the frame rate.
+     */
     @Override
     protected void paintComponent(Graphics g) {
-        final long now = System.currentTimeMillis();
-        if (now - lastPaint > 1000 / MAX_FPS) {
-            this.painter.paint(g, 0, 0);
-            lastPaint = now;
-        }
+        this.painter.paint(g, 0, 0);
     }
 
     public void removeEdge(Edge edge) {
-        this.layout.removeEdge(edge);
+        this.layout.enqueueRemoveEdge(edge);
     }
 
     public final void removeGraphFinishedListener(final GraphFinishedListener l) {
@@ -222,7 +258,7 @@ public class GraphPanel extends JPanel implements GraphFinishedListener {
     }
 
     public void removeNode(Node node) {
-        this.layout.removeNode(node);
+        this.layout.enqueueRemoveNode(node);
         if (node == this.selectedNode) {
             this.selectedNode = null;
         }
@@ -244,7 +280,7 @@ public class GraphPanel extends JPanel implements GraphFinishedListener {
     }
 
     private void setDefaultFont(Font font) {
-        this.fontMetrics = this.getFontMetrics(font);
+        this.labelFont = font;
     }
 
     /**
@@ -286,12 +322,8 @@ public class GraphPanel extends JPanel implements GraphFinishedListener {
      * @return
      */
     public final Vector toScreen(Vector p) {
-        final Vector size = this.currentBB.getSize();
-        final double sx = Vector.subtract(p, this.currentBB.getBottomLeft()).divide(size.getX()).getX()
-                * this.painter.getWidth();
-        final double sy = Vector.subtract(p, this.currentBB.getBottomLeft()).divide(size.getY()).getY()
-                * this.painter.getHeight();
-        return zoom(new Vector(sx, sy), ZOOM_FACTOR);
+        final double[] t = getScreenTransform(new double[4]);
+        return new Vector(p.getX() * t[0] + t[2], p.getY() * t[1] + t[3]);
     }
 
     private final Vector unzoom(final Vector vector, final double factor) {
@@ -299,10 +331,4 @@ public class GraphPanel extends JPanel implements GraphFinishedListener {
         vector.setY((vector.getY() - getHeight() * (1d - factor) / 2d) / factor);
         return vector;
     }
-
-    private final Vector zoom(final Vector vector, final double factor) {
-        vector.setX(vector.getX() * factor + getWidth() * (1d - factor) / 2d);
-        vector.setY(vector.getY() * factor + getHeight() * (1d - factor) / 2d);
-        return vector;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,95 @@
+/*  Copyright (c) 2010 Xiaoyun Zhu
+ * 
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy  
+ *  of this software and associated documentation files (the "Software"), to deal  
+ *  in the Software without restriction, including without limitation the rights  
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell  
+ *  copies of the Software, and to permit persons to whom the Software is  
+ *  furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in  
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR  
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,  
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER  
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,  
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
+ *  THE SOFTWARE.  
+ */
+package cn.kk.forcedgraph.swing;
+
+import java.awt.Component;
+import java.awt.Font;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Widths of labels per font, measured once instead of every frame. The least recently used widths are dropped beyond
+ * {@link #CAPACITY}, so labels that changed or went away do not pile up.
+ * 
+ * @author x_kez
+ * 
+ */
+final class LabelMetrics {
+    static final int CAPACITY = 4096;
+
+    private final Component component;
+    private final Map<Key, Integer> widths = new LinkedHashMap<Key, Integer>(256, 0.75f, true) {
+        private static final long serialVersionUID = -3270184523462587921L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Key, Integer> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+    // looked up with, guarded by the widths
+    private final Key probe = new Key();
+
+    /**
+     * @param component
+     *            measures the labels
+     */
+    LabelMetrics(final Component component) {
+        this.component = component;
+    }
+
+    /**
+     * @return the width of the label in the font, in pixels
+     */
+    final int stringWidth(final String label, final Font font) {
+        synchronized (this.widths) {
+            this.probe.label = label;
+            this.probe.font = font;
+            Integer width = this.widths.get(this.probe);
+            if (width == null) {
+                width = Integer.valueOf(this.component.getFontMetrics(font).stringWidth(label));
+                final Key key = new Key();
+                key.label = label;
+                key.font = font;
+                this.widths.put(key, width);
+            }
+            return width.intValue();
+        }
+    }
+
+    private static final class Key {
+        private String label;
+        private Font font;
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return this.label.equals(other.label) && this.font.equals(other.font);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.label.hashCode() * 31 + this.font.hashCode();
+        }
+    }
+}
@@ -18,12 +18,11 @@
  *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
  *  THE SOFTWARE.  
  */
-package cn.kk.forcedgraph.listener;
+package cn.kk.forcedgraph.swing;
 
 import java.awt.event.MouseEvent;
 
 import cn.kk.forcedgraph.graph.Node;
-import cn.kk.forcedgraph.layout.GraphPanel;
 
 public interface NodeSelectedListener {
     public void onSelect(MouseEvent e, GraphPanel panel, Node node);
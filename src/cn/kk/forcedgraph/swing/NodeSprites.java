@@ -0,0 +1,148 @@
+/*  Copyright (c) 2010 Xiaoyun Zhu
+ * 
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy  
+ *  of this software and associated documentation files (the "Software"), to deal  
+ *  in the Software without restriction, including without limitation the rights  
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell  
+ *  copies of the Software, and to permit persons to whom the Software is  
+ *  furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in  
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR  
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,  
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER  
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,  
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
+ *  THE SOFTWARE.  
+ */
+package cn.kk.forcedgraph.swing;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Stroke;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Node label boxes rendered once into images, so frames copy pixels instead of laying out text and filling shapes.
+ * Sprites are looked up by label and style values, a node whose label, font or colours changed gets a new sprite and
+ * the old one is dropped once it is the least recently used beyond {@link #CAPACITY}. Used by the painting thread
+ * only.
+ * 
+ * @author x_kez
+ * 
+ */
+final class NodeSprites {
+    static final int CAPACITY = 1024;
+
+    private final Map<Key, Sprite> sprites = new LinkedHashMap<Key, Sprite>(256, 0.75f, true) {
+        private static final long serialVersionUID = 2183326466512804217L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Key, Sprite> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+    private final Key probe = new Key();
+
+    final void clear() {
+        this.sprites.clear();
+    }
+
+    /**
+     * Draws the label box with its top left corner at the given position, rendering the sprite first if needed.
+     */
+    final void draw(final Graphics2D g, final String label, final NodeStyle style, final double boxX,
+            final double boxY, final double boxWidth, final double boxHeight) {
+        this.probe.set(label, style, boxWidth, boxHeight);
+        Sprite sprite = this.sprites.get(this.probe);
+        if (sprite == null) {
+            final Key key = new Key();
+            key.set(label, style, boxWidth, boxHeight);
+            sprite = new Sprite(key);
+            this.sprites.put(key, sprite);
+        }
+        g.drawImage(sprite.image, (int) Math.round(boxX) - sprite.padding, (int) Math.round(boxY) - sprite.padding,
+                null);
+    }
+
+    /**
+     * @return the number of cached sprites
+     */
+    final int size() {
+        return this.sprites.size();
+    }
+
+    private static final class Key {
+        private String label;
+        private Font font;
+        private Color background;
+        private Color box;
+        private Color labelColor;
+        private Stroke stroke;
+        private double width;
+        private double height;
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return this.label.equals(other.label) && this.font.equals(other.font)
+                    && this.background.equals(other.background) && this.box.equals(other.box)
+                    && this.labelColor.equals(other.labelColor) && this.stroke.equals(other.stroke)
+                    && this.width == other.width && this.height == other.height;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = this.label.hashCode();
+            result = result * 31 + this.font.hashCode();
+            result = result * 31 + this.background.hashCode();
+            result = result * 31 + this.box.hashCode();
+            result = result * 31 + this.labelColor.hashCode();
+            result = result * 31 + this.stroke.hashCode();
+            return result * 31 + (int) this.width;
+        }
+
+        private final void set(final String label, final NodeStyle style, final double width, final double height) {
+            this.label = label;
+            this.font = style.getFont();
+            this.background = style.getBackgroundColor();
+            this.box = style.getBoxColor();
+            this.labelColor = style.getLabelColor();
+            this.stroke = style.getStroke();
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private static final class Sprite {
+        private final BufferedImage image;
+        // transparent border around the box, room for the outline
+        private final int padding;
+
+        Sprite(final Key key) {
+            if (key.stroke instanceof BasicStroke) {
+                this.padding = (int) Math.ceil(((BasicStroke) key.stroke).getLineWidth() / 2f) + 1;
+            } else {
+                this.padding = 2;
+            }
+            this.image = new BufferedImage((int) Math.ceil(key.width) + 2 * this.padding, (int) Math.ceil(key.height)
+                    + 2 * this.padding, BufferedImage.TYPE_INT_ARGB_PRE);
+            final Graphics2D g = this.image.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            PainterImpl.drawLabelBox(g, key.label, this.padding, this.padding, key.width, key.height,
+                    key.background, key.box, key.stroke, key.labelColor, key.font);
+            g.dispose();
+        }
+    }
+}
@@ -18,13 +18,17 @@
  *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
  *  THE SOFTWARE.  
  */
-package cn.kk.forcedgraph.layout;
+package cn.kk.forcedgraph.swing;
 
+import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
+import java.awt.Stroke;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
 import java.awt.image.BufferedImage;
 
 import cn.kk.forcedgraph.graph.Edge;
@@ -33,6 +37,12 @@ import cn.kk.forcedgraph.graph.Node;
 import cn.kk.forcedgraph.graph.Vector;
 
 public abstract class PainterBase {
+    public static final int DOT_SIZE = 4;
+    public static final Color AGGREGATED_EDGE_COLOR = new Color(0x60007C23, true);
+    public static final Stroke AGGREGATED_EDGE_STROKE = new BasicStroke(0.5f);
+    // lines per path drawn without antialiasing
+    protected static final int LINE_BATCH = 1024;
+
     public static final void drawCenteredString(final Graphics2D g, final FontMetrics fm, final String label,
             final double x1, final double y1, final double x2, final double y2) {
         final int w = fm.stringWidth(label);
@@ -93,6 +103,14 @@ public abstract class PainterBase {
 
     private Color background = new Color(0xf6f6f6);
 
+    // reused by drawLines
+    private final Line2D.Double line = new Line2D.Double();
+    private final Path2D.Double path = new Path2D.Double();
+    // last colour made opaque
+    private Color translucent;
+    private Color opaqueBackground;
+    private Color opaque;
+
     protected BufferedImage bufferedImage;
 
     protected int width;
@@ -109,11 +127,99 @@ public abstract class PainterBase {
 
     public abstract void clear(Graphics2D g);
 
+    /**
+     * Draws the edges of a zoomed out frame, all alike. Without antialiasing in an opaque colour of the same look on
+     * the background, translucent lines are not drawn by the fast loops then.
+     * 
+     * @param lines
+     *            x1, y1, x2 and y2 of each line
+     * @param count
+     *            number of lines
+     */
+    public void drawAggregatedEdges(final Graphics2D g, final double[] lines, final int count) {
+        if (g.getRenderingHint(RenderingHints.KEY_ANTIALIASING) == RenderingHints.VALUE_ANTIALIAS_ON) {
+            g.setColor(AGGREGATED_EDGE_COLOR);
+        } else {
+            g.setColor(opaque(AGGREGATED_EDGE_COLOR));
+        }
+        g.setStroke(AGGREGATED_EDGE_STROKE);
+        drawLines(g, lines, count);
+    }
+
+    /**
+     * Draws the node as a dot of {@link #DOT_SIZE}, when its label box would be too large for the zoom.
+     */
+    public void drawDot(final Graphics2D g, final GraphPanel panel, final Node node, final double x, final double y) {
+        g.fillRect((int) x - DOT_SIZE / 2, (int) y - DOT_SIZE / 2, DOT_SIZE, DOT_SIZE);
+    }
+
     public abstract void drawEdge(Graphics2D g, final GraphPanel panel, final Graph graph, final Edge edge,
             final Vector sp1, final Vector sp2);
 
+    /**
+     * Draws the edge knowing its position among the edges between the same nodes, as taken from a
+     * {@link cn.kk.forcedgraph.layout.LayoutSnapshot}, so the graph need not be read while it may change. Painters
+     * that do not offset parallel edges may ignore them, by default the graph is asked.
+     * 
+     * @param index
+     *            position of the edge among the edges from its source to its target
+     * @param count
+     *            number of edges between both nodes, in both directions
+     */
+    public void drawEdge(Graphics2D g, final GraphPanel panel, final Graph graph, final Edge edge, final Vector sp1,
+            final Vector sp2, final int index, final int count) {
+        drawEdge(g, panel, graph, edge, sp1, sp2);
+    }
+
+    /**
+     * Draws the edge as a plain line between both node centres, without arrow, label or offset from parallel edges.
+     * Painters may hold the line back to draw it together with others alike, {@link #flushEdgeLines(Graphics2D)}
+     * draws what is held back.
+     */
+    public void drawEdgeLine(final Graphics2D g, final GraphPanel panel, final Edge edge, final double x1,
+            final double y1, final double x2, final double y2) {
+        g.drawLine((int) x1, (int) y1, (int) x2, (int) y2);
+    }
+
+    /**
+     * Draws lines in the current colour and stroke. With antialiasing each line is drawn by itself, antialiased
+     * paths of many lines rasterize several times slower than their lines one at a time. Without, lines are drawn
+     * {@link #LINE_BATCH} to a path.
+     * 
+     * @param lines
+     *            x1, y1, x2 and y2 of each line
+     * @param count
+     *            number of lines
+     */
+    protected final void drawLines(final Graphics2D g, final double[] lines, final int count) {
+        if (g.getRenderingHint(RenderingHints.KEY_ANTIALIASING) == RenderingHints.VALUE_ANTIALIAS_ON) {
+            for (int i = 0; i < count * 4; i += 4) {
+                this.line.setLine(lines[i], lines[i + 1], lines[i + 2], lines[i + 3]);
+                g.draw(this.line);
+            }
+        } else {
+            for (int i = 0; i < count * 4; i += 4) {
+                this.path.moveTo(lines[i], lines[i + 1]);
+                this.path.lineTo(lines[i + 2], lines[i + 3]);
+                if ((i / 4 + 1) % LINE_BATCH == 0) {
+                    g.draw(this.path);
+                    this.path.reset();
+                }
+            }
+            g.draw(this.path);
+            this.path.reset();
+        }
+    }
+
     public abstract void drawNode(Graphics2D g, final GraphPanel panel, final Node node, final Vector sp);
 
+    /**
+     * Draws the edge lines held back by {@link #drawEdgeLine(Graphics2D, GraphPanel, Edge, double, double, double,
+     * double)}, none by default.
+     */
+    public void flushEdgeLines(final Graphics2D g) {
+    }
+
     /**
      * @return the background
      */
@@ -121,6 +227,15 @@ public abstract class PainterBase {
         return this.background;
     }
 
+    /**
+     * Edges are drawn as plain lines in order of their line style, so that lines alike follow each other.
+     * 
+     * @return a key equal for edges whose plain lines look alike, null if all do, as by default
+     */
+    public Object getEdgeLineStyle(final Edge edge) {
+        return null;
+    }
+
     /**
      * @return the height
      */
@@ -135,6 +250,21 @@ public abstract class PainterBase {
         return this.width;
     }
 
+    /**
+     * @return the colour blended onto the background, without transparency
+     */
+    protected final Color opaque(final Color color) {
+        if (color != this.translucent || this.background != this.opaqueBackground) {
+            final float alpha = color.getAlpha() / 255f;
+            this.opaque = new Color(Math.round(color.getRed() * alpha + this.background.getRed() * (1f - alpha)),
+                    Math.round(color.getGreen() * alpha + this.background.getGreen() * (1f - alpha)), Math.round(color
+                            .getBlue() * alpha + this.background.getBlue() * (1f - alpha)));
+            this.translucent = color;
+            this.opaqueBackground = this.background;
+        }
+        return this.opaque;
+    }
+
     public void paint(final Graphics g, final int x, final int y) {
         synchronized (this) {
             g.drawImage(this.bufferedImage, x, y, null);
@@ -0,0 +1,356 @@
+/*  Copyright (c) 2010 Xiaoyun Zhu
+ * 
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy  
+ *  of this software and associated documentation files (the "Software"), to deal  
+ *  in the Software without restriction, including without limitation the rights  
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell  
+ *  copies of the Software, and to permit persons to whom the Software is  
+ *  furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in  
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR  
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,  
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER  
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,  
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
+ *  THE SOFTWARE.  
+ */
+package cn.kk.forcedgraph.swing;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Stroke;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.RoundRectangle2D;
+import java.util.Arrays;
+import java.util.List;
+
+import cn.kk.forcedgraph.bean.EdgeData;
+import cn.kk.forcedgraph.bean.NodeData;
+import cn.kk.forcedgraph.graph.Edge;
+import cn.kk.forcedgraph.graph.Graph;
+import cn.kk.forcedgraph.graph.Node;
+import cn.kk.forcedgraph.graph.Vector;
+
+public final class PainterImpl extends PainterBase {
+
+    private static final Color SELECTED_LABEL_COLOR = Color.BLACK;
+    private static final Color SELECTED_BG_COLOR = Color.WHITE;
+    private static final Color SELECTED_BOX_COLOR = new Color(0xF00019);
+    private static final Stroke SELECTED_STROKE = new BasicStroke(3.0f);
+
+    private static final Color NEAREST_LABEL_COLOR = Color.BLACK;
+    private static final Color NEAREST_BG_COLOR = new Color(0xFBFFF7);
+    private static final Color NEAREST_BOX_COLOR = NEAREST_BG_COLOR.darker();
+    private static final Stroke NEAREST_STROKE = new BasicStroke(2.5f);
+
+    // strokes of edges by width in quarter pixels
+    private static final int STROKE_STEPS = 4;
+
+    // reused by drawEdge, painters are used by one thread at a time
+    private final Line2D.Double line = new Line2D.Double();
+    private final Path2D.Double path = new Path2D.Double();
+    private BasicStroke[] strokes = new BasicStroke[32];
+    // edge lines held back by drawEdgeLine
+    private final double[] batch = new double[LINE_BATCH * 4];
+    private int batchCount;
+    private Graphics2D batchGraphics;
+    private Color batchColor;
+    private Stroke batchStroke;
+    private NodeSprites sprites;
+
+    public PainterImpl(final int width, final int height) {
+        super(width, height);
+    }
+
+    @Override
+    public void clear(Graphics2D g) {
+        g.setColor(this.getBackground());
+        g.fillRect(0, 0, this.width, this.height);
+    }
+
+    /**
+     * @return the fraction along p1 p2 where it crosses p3 p4, NaN if it does not
+     */
+    private static final double crossing(final double x1, final double y1, final double x2, final double y2,
+            final double x3, final double y3, final double x4, final double y4) {
+        final double denom = (y4 - y3) * (x2 - x1) - (x4 - x3) * (y2 - y1);
+        // lines are parallel
+        if (denom == 0) {
+            return Double.NaN;
+        }
+        final double ua = ((x4 - x3) * (y1 - y3) - (y4 - y3) * (x1 - x3)) / denom;
+        final double ub = ((x2 - x1) * (y1 - y3) - (y2 - y1) * (x1 - x3)) / denom;
+        if (ua < 0 || ua > 1 || ub < 0 || ub > 1) {
+            return Double.NaN;
+        }
+        return ua;
+    }
+
+    /**
+     * Fills an arrow head with its tip at x, y pointing along cos, sin.
+     */
+    private final void drawArrow(final Graphics2D g, final double x, final double y, final double cos,
+            final double sin, final double arrowWidth, final double arrowLength) {
+        final Path2D.Double arrow = this.path;
+        arrow.reset();
+        arrow.moveTo(x - arrowLength * cos - arrowWidth * sin, y - arrowLength * sin + arrowWidth * cos);
+        arrow.lineTo(x, y);
+        arrow.lineTo(x - arrowLength * cos + arrowWidth * sin, y - arrowLength * sin - arrowWidth * cos);
+        arrow.lineTo(x - arrowLength * 0.8 * cos, y - arrowLength * 0.8 * sin);
+        arrow.closePath();
+        g.fill(arrow);
+    }
+
+    @Override
+    public void drawDot(final Graphics2D g, final GraphPanel panel, final Node node, final double x, final double y) {
+        flushEdgeLines(g);
+        g.setColor(NodeStyle.of(node.getData()).getBoxColor());
+        super.drawDot(g, panel, node, x, y);
+    }
+
+    @Override
+    public void drawEdge(Graphics2D g, final GraphPanel panel, final Graph graph, final Edge edge, final Vector sp1,
+            final Vector sp2) {
+        // links
+        final List<Edge> from = graph.getEdges(edge.getSource(), edge.getTarget());
+        final List<Edge> to = graph.getEdges(edge.getTarget(), edge.getSource());
+        final int fromSize = from.size();
+
+        // Figure out edge's position in relation to other edges between the same nodes
+        int n = 0;
+        for (int i = 0; i < fromSize; i++) {
+            if (edge.equals(from.get(i))) {
+                n = i;
+                break;
+            }
+        }
+        drawEdge(g, panel, graph, edge, sp1, sp2, n, fromSize + to.size());
+    }
+
+    @Override
+    public void drawEdge(Graphics2D g, final GraphPanel panel, final Graph graph, final Edge edge, final Vector sp1,
+            final Vector sp2, final int index, final int count) {
+        flushEdgeLines(g);
+        final Node edgeTarget = edge.getTarget();
+        final EdgeData edgeData = edge.getData();
+        final EdgeStyle edgeStyle = EdgeStyle.of(edgeData);
+
+        final double x1 = sp1.getX();
+        final double y1 = sp1.getY();
+        final double x2 = sp2.getX();
+        final double y2 = sp2.getY();
+
+        // unit direction, zero for coincident ends
+        final double length = Math.sqrt((x2 - x1) * (x2 - x1) + (y2 - y1) * (y2 - y1));
+        final double cos = length == 0d ? 0d : (x2 - x1) / length;
+        final double sin = length == 0d ? 0d : (y2 - y1) / length;
+
+        final double spacing = 6.0;
+        // Figure out how far off center the line should be drawn, along the normal
+        final double offset = -((count - 1) * spacing) / 2.0 + index * spacing;
+        final double s1x = x1 - sin * offset;
+        final double s1y = y1 + cos * offset;
+        final double s2x = x2 - sin * offset;
+        final double s2y = y2 + cos * offset;
+
+        final double boxWidth = panel.getNodeWidth(edgeTarget);
+        final double boxHeight = panel.getNodeHeight(edgeTarget);
+        final double left = x2 - boxWidth / 2.0;
+        final double top = y2 - boxHeight / 2.0;
+        final double right = left + boxWidth;
+        final double bottom = top + boxHeight;
+
+        // where the line enters the target box: top, right, bottom or left side
+        double t = crossing(s1x, s1y, s2x, s2y, left, top, right, top);
+        if (Double.isNaN(t)) {
+            t = crossing(s1x, s1y, s2x, s2y, right, top, right, bottom);
+        }
+        if (Double.isNaN(t)) {
+            t = crossing(s1x, s1y, s2x, s2y, right, bottom, left, bottom);
+        }
+        if (Double.isNaN(t)) {
+            t = crossing(s1x, s1y, s2x, s2y, left, bottom, left, top);
+        }
+        if (Double.isNaN(t)) {
+            t = 1d;
+        }
+        final double ix = s1x + t * (s2x - s1x);
+        final double iy = s1y + t * (s2y - s1y);
+
+        final boolean directional = edgeData.isDirectional();
+        final float weight = edgeData.getWeight();
+        final boolean selected = panel.getSelectedNode() == edge.getSource();
+        final float lineWidth = selected ? Math.max(weight * 2f, 1f) : Math.max(weight * 1f, 0.5f);
+        final double arrowWidth = lineWidth * 2;
+        final double arrowLength = lineWidth * 4d;
+
+        // line
+        final double endX;
+        final double endY;
+        if (directional) {
+            endX = ix - cos * arrowLength * 0.5;
+            endY = iy - sin * arrowLength * 0.5;
+        } else {
+            endX = s2x;
+            endY = s2y;
+        }
+
+        g.setStroke(stroke(lineWidth));
+        g.setColor(edgeStyle.getColor());
+        if (selected) {
+            // wide line half a pixel off, the plain line on top
+            this.line.setLine(s1x + 0.5d, s1y + 0.5d, endX + 0.5d, endY + 0.5d);
+            g.draw(this.line);
+            if (directional) {
+                drawArrow(g, ix, iy, cos, sin, arrowWidth, arrowLength);
+            }
+            g.setStroke(edgeStyle.getLineStroke());
+            this.line.setLine(s1x, s1y, endX, endY);
+            g.draw(this.line);
+        } else {
+            this.line.setLine(s1x, s1y, endX, endY);
+            g.draw(this.line);
+            if (directional) {
+                drawArrow(g, ix, iy, cos, sin, arrowWidth, arrowLength);
+            }
+        }
+
+        // label
+        if (edgeData.getLabel() != null) {
+            g.setFont(edgeStyle.getFont());
+            g.setColor(edgeStyle.getLabelColor());
+            drawCenteredString(g, g.getFontMetrics(), edgeData.getLabel(), x1, y1, x2, y2);
+        }
+    }
+
+    /**
+     * Holds the line back until a line of another colour or stroke comes or the batch is full, so the graphics state
+     * is set once per batch.
+     */
+    @Override
+    public void drawEdgeLine(final Graphics2D g, final GraphPanel panel, final Edge edge, final double x1,
+            final double y1, final double x2, final double y2) {
+        final EdgeStyle edgeStyle = EdgeStyle.of(edge.getData());
+        final Color color = edgeStyle.getColor();
+        final Stroke stroke = edgeStyle.getLineStroke();
+        if (g != this.batchGraphics || !color.equals(this.batchColor) || !stroke.equals(this.batchStroke)) {
+            flushEdgeLines(this.batchGraphics);
+            this.batchGraphics = g;
+            this.batchColor = color;
+            this.batchStroke = stroke;
+        }
+        final int i = this.batchCount * 4;
+        this.batch[i] = x1;
+        this.batch[i + 1] = y1;
+        this.batch[i + 2] = x2;
+        this.batch[i + 3] = y2;
+        if (++this.batchCount == LINE_BATCH) {
+            flushEdgeLines(g);
+        }
+    }
+
+    /**
+     * Draws a rounded label box with its top left corner at boxX, boxY.
+     */
+    static final void drawLabelBox(final Graphics2D g, final String label, final double boxX, final double boxY,
+            final double boxWidth, final double boxHeight, final Color background, final Color boxColor,
+            final Stroke stroke, final Color labelColor, final Font font) {
+        final RoundRectangle2D box = new RoundRectangle2D.Double(boxX, boxY, boxWidth, boxHeight, 6, 6);
+        g.setColor(background);
+        g.fill(box);
+        g.setStroke(stroke);
+        g.setColor(boxColor);
+        g.draw(box);
+        g.setColor(labelColor);
+        g.setFont(font);
+        g.drawString(label, (int) (boxX + 5), (int) (boxY + 2) + g.getFontMetrics().getAscent());
+    }
+
+    @Override
+    public void drawNode(final Graphics2D g, final GraphPanel panel, final Node node, final Vector sp) {
+        flushEdgeLines(g);
+        final NodeData nodeData = node.getData();
+        final NodeStyle nodeStyle = NodeStyle.of(nodeData);
+
+        final double boxWidth = panel.getNodeWidth(node);
+        final double boxHeight = panel.getNodeHeight(node);
+
+        final double boxY = sp.getY() - 10d;
+        final double boxX = sp.getX() - boxWidth / 2d;
+
+        if (node == panel.getSelectedNode()) {
+            drawLabelBox(g, nodeData.getLabel(), boxX, boxY, boxWidth, boxHeight, SELECTED_BG_COLOR,
+                    SELECTED_BOX_COLOR, SELECTED_STROKE, SELECTED_LABEL_COLOR, nodeStyle.getFont().deriveFont(
+                            Font.ITALIC));
+        } else if (node == panel.getNearestNode()) {
+            drawLabelBox(g, nodeData.getLabel(), boxX, boxY, boxWidth, boxHeight, NEAREST_BG_COLOR,
+                    NEAREST_BOX_COLOR, NEAREST_STROKE, NEAREST_LABEL_COLOR, nodeStyle.getFont());
+        } else if (this.sprites != null) {
+            this.sprites.draw(g, nodeData.getLabel(), nodeStyle, boxX, boxY, boxWidth, boxHeight);
+        } else {
+            drawLabelBox(g, nodeData.getLabel(), boxX, boxY, boxWidth, boxHeight, nodeStyle.getBackgroundColor(),
+                    nodeStyle.getBoxColor(), nodeStyle.getStroke(), nodeStyle.getLabelColor(), nodeStyle.getFont());
+        }
+    }
+
+    @Override
+    public void flushEdgeLines(final Graphics2D g) {
+        if (this.batchCount != 0) {
+            g.setColor(this.batchColor);
+            g.setStroke(this.batchStroke);
+            drawLines(g, this.batch, this.batchCount);
+            this.batchCount = 0;
+        }
+    }
+
+    /**
+     * @return colour and stroke of the edge
+     */
+    @Override
+    public Object getEdgeLineStyle(final Edge edge) {
+        final EdgeStyle edgeStyle = EdgeStyle.of(edge.getData());
+        return Arrays.asList(edgeStyle.getColor(), edgeStyle.getLineStroke());
+    }
+
+    /**
+     * @return whether node label boxes are drawn from cached sprites
+     */
+    public final boolean isNodeSprites() {
+        return this.sprites != null;
+    }
+
+    /**
+     * Draws node label boxes from images rendered once per label and style, much faster than laying out the text
+     * every frame. Selected and nearest nodes are always drawn directly.
+     * 
+     * @param nodeSprites
+     *            whether to cache sprites, the cache is dropped when switched off
+     */
+    public final void setNodeSprites(final boolean nodeSprites) {
+        if (nodeSprites != isNodeSprites()) {
+            this.sprites = nodeSprites ? new NodeSprites() : null;
+        }
+    }
+
+    /**
+     * @return a stroke of the width rounded to a quarter pixel, created once per width
+     */
+    private final BasicStroke stroke(final float width) {
+        final int i = Math.round(width * STROKE_STEPS);
+        if (i >= this.strokes.length) {
+            this.strokes = Arrays.copyOf(this.strokes, i + 1);
+        }
+        if (this.strokes[i] == null) {
+            this.strokes[i] = new BasicStroke((float) i / STROKE_STEPS);
+        }
+        return this.strokes[i];
+    }
+
+}
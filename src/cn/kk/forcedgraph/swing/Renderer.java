@@ -0,0 +1,456 @@
+/*  Copyright (c) 2010 Xiaoyun Zhu
+ * 
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy  
+ *  of this software and associated documentation files (the "Software"), to deal  
+ *  in the Software without restriction, including without limitation the rights  
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell  
+ *  copies of the Software, and to permit persons to whom the Software is  
+ *  furnished to do so, subject to the following conditions:
+ *  
+ *  The above copyright notice and this permission notice shall be included in  
+ *  all copies or substantial portions of the Software.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR  
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,  
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE  
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER  
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,  
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN  
+ *  THE SOFTWARE.  
+ */
+package cn.kk.forcedgraph.swing;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import cn.kk.forcedgraph.graph.Edge;
+import cn.kk.forcedgraph.graph.Graph;
+import cn.kk.forcedgraph.graph.GraphDelta;
+import cn.kk.forcedgraph.graph.Node;
+import cn.kk.forcedgraph.graph.Vector;
+import cn.kk.forcedgraph.layout.ForceDirectedLayout;
+import cn.kk.forcedgraph.layout.GraphRenderer;
+import cn.kk.forcedgraph.layout.LayoutSnapshot;
+import cn.kk.forcedgraph.listener.GraphDeltaListener;
+import cn.kk.forcedgraph.listener.GraphFinishedListener;
+import cn.kk.forcedgraph.listener.LayoutRenderListener;
+
+/**
+ * Paints the layout into the panel's image. Frames are painted on their own thread from the snapshot the layout
+ * published, so painting neither holds the layout lock nor blocks the simulation and mutations. A frame requested
+ * while one is painted is coalesced into the next.
+ * <p>
+ * Only what is on screen is painted, and the detail depends on the room the visible nodes have: nodes turn into dots
+ * once their label boxes would cover each other, arrows and edge labels are left out when the edges get short, and
+ * when nodes are a few pixels apart edges sharing their end pixels are drawn once, all alike. The selected and the
+ * nearest node always keep their label box.
+ */
+public final class Renderer implements GraphDeltaListener, LayoutRenderListener, GraphFinishedListener {
+    public static final ExecutorService PAINTER = Executors.newSingleThreadExecutor();
+    // mean pixels between visible nodes below which arrows, edge labels and parallel edge offsets are left out
+    private static final double DETAIL_SPACING = 60d;
+    // spacing below which nodes are dots
+    private static final double LABEL_SPACING = 40d;
+    // spacing below which edges are aggregated into cells of AGGREGATE_CELL pixels
+    private static final double AGGREGATE_SPACING = 8d;
+    private static final int AGGREGATE_CELL = 2;
+    // edges in the snapshot above which plain and aggregated edges are not antialiased
+    private static final int ANTIALIASED_EDGES = 10000;
+    // pixels around the screen still painted, room for arrows, boxes and offsets
+    private static final int MARGIN = 20;
+    private static final int LEFT = 1;
+    private static final int RIGHT = 2;
+    private static final int TOP = 4;
+    private static final int BOTTOM = 8;
+    // shortest time between two frames in nanoseconds, at most 46 frames per second
+    private static final long FRAME_INTERVAL = TimeUnit.SECONDS.toNanos(1L) / 46L;
+    private final long interval;
+    private final ForceDirectedLayout layout;
+    private final GraphPanel panel;
+    private final AtomicBoolean paintPending = new AtomicBoolean();
+    private final Runnable paintTask = new Runnable() {
+        @Override
+        public void run() {
+            Renderer.this.paintPending.set(false);
+            repaint();
+        }
+    };
+    // hands a throttled frame back to the painter thread
+    private final Runnable delayedPaintTask = new Runnable() {
+        @Override
+        public void run() {
+            PAINTER.execute(Renderer.this.paintTask);
+        }
+    };
+    private long lastPaint = System.nanoTime() - FRAME_INTERVAL;
+    private Graphics2D g;
+    // per frame buffers, only used by the painter thread
+    private final double[] transform = new double[4];
+    private double[] sx = new double[0];
+    private double[] sy = new double[0];
+    private int[] outcodes = new int[0];
+    private long[] cellPairs = new long[0];
+    private double[] aggregatedEdges = new double[0];
+    // edge indices in order of their line style, for the topology and painter they were ordered for
+    private int[] edgeOrder = new int[0];
+    private long orderedTopology = -1L;
+    private PainterBase orderedPainter;
+    // screen positions handed to the painter, reused
+    private final Vector sp1 = new Vector(0d, 0d);
+    private final Vector sp2 = new Vector(0d, 0d);
+
+    /**
+     * @param panel
+     * @param interval
+     * @param layout
+     */
+    public Renderer(final GraphPanel panel, final long interval, final ForceDirectedLayout layout) {
+        this.panel = panel;
+        this.interval = interval;
+        this.layout = layout;
+
+        this.layout.getGraph().addGraphDeltaListener(this);
+    }
+
+    /**
+     * @return the index of the aggregation cell of a point within the screen plus margin
+     */
+    private static final int cell(final double x, final double y, final int columns) {
+        return (int) ((y + MARGIN) / AGGREGATE_CELL) * columns + (int) ((x + MARGIN) / AGGREGATE_CELL);
+    }
+
+    /**
+     * @return the interval
+     */
+    public long getInterval() {
+        return this.interval;
+    }
+
+    /**
+     * @return whether the node of the given index overlaps the screen
+     */
+    private final boolean isVisible(final Node node, final int i, final int width) {
+        final int outcode = this.outcodes[i];
+        if ((outcode & (TOP | BOTTOM)) != 0) {
+            return false;
+        }
+        if (outcode == 0) {
+            return true;
+        }
+        // wide label boxes may reach in from beyond the margin
+        final double halfWidth = this.panel.getNodeWidth(node) / 2d;
+        return this.sx[i] + halfWidth >= 0d && this.sx[i] - halfWidth <= width;
+    }
+
+    @Override
+    public void onChanged(GraphDelta delta) {
+        final Set<Node> removedNodes = delta.getRemovedNodes();
+        if (!removedNodes.isEmpty()) {
+            this.panel.forget(removedNodes);
+        }
+        this.panel.start();
+    }
+
+    @Override
+    public void onFinished() {
+        requestPaint();
+    }
+
+    @Override
+    public void onRender() {
+        requestPaint();
+    }
+
+    /**
+     * Sorts the edge indices by the line style the painter gives them, so that plain lines alike are drawn in a row.
+     */
+    private final void orderEdges(final LayoutSnapshot snapshot, final PainterBase painter) {
+        final Edge[] edges = snapshot.getEdges();
+        final int count = snapshot.edgeCount();
+        final Map<Object, Integer> styles = new HashMap<Object, Integer>();
+        final int[] style = new int[count];
+        for (int e = 0; e < count; e++) {
+            final Object key = painter.getEdgeLineStyle(edges[e]);
+            Integer i = styles.get(key);
+            if (i == null) {
+                i = Integer.valueOf(styles.size());
+                styles.put(key, i);
+            }
+            style[e] = i.intValue();
+        }
+        final int[] start = new int[styles.size() + 1];
+        for (int e = 0; e < count; e++) {
+            start[style[e] + 1]++;
+        }
+        for (int i = 1; i < start.length; i++) {
+            start[i] += start[i - 1];
+        }
+        if (this.edgeOrder.length < count) {
+            this.edgeOrder = new int[edges.length];
+        }
+        for (int e = 0; e < count; e++) {
+            this.edgeOrder[start[style[e]]++] = e;
+        }
+        this.orderedTopology = snapshot.getTopology();
+        this.orderedPainter = painter;
+    }
+
+    /**
+     * Paints the snapshot, edges first.
+     */
+    private final void paint(final LayoutSnapshot snapshot) {
+        final PainterBase painter = this.panel.getPainter();
+        final int width = painter.getWidth();
+        final int height = painter.getHeight();
+        final int visible = project(snapshot, this.panel.getScreenTransform(this.transform), width, height);
+        final double spacing = Math.sqrt((double) width * height / Math.max(visible, 1));
+        final boolean detailed = spacing >= DETAIL_SPACING;
+        // antialiasing makes many lines several times slower
+        final Object antialiasing = g.getRenderingHint(RenderingHints.KEY_ANTIALIASING);
+        if (!detailed && snapshot.edgeCount() > ANTIALIASED_EDGES) {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        }
+        if (spacing < AGGREGATE_SPACING) {
+            paintAggregatedEdges(snapshot, painter);
+        } else {
+            paintEdges(snapshot, painter, detailed);
+        }
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, antialiasing);
+        paintNodes(snapshot, painter, spacing >= LABEL_SPACING);
+    }
+
+    /**
+     * Draws the edges within the screen once per pair of cells their ends fall into, all alike. Edges crossing the
+     * border of the screen are drawn as they are.
+     */
+    private final void paintAggregatedEdges(final LayoutSnapshot snapshot, final PainterBase painter) {
+        final int[] source = snapshot.getSource();
+        final int[] target = snapshot.getTarget();
+        final int edges = snapshot.edgeCount();
+        final int columns = (painter.getWidth() + 2 * MARGIN) / AGGREGATE_CELL + 1;
+        int capacity = 16;
+        while (capacity < edges * 2) {
+            capacity <<= 1;
+        }
+        if (this.cellPairs.length < capacity) {
+            this.cellPairs = new long[capacity];
+        } else {
+            Arrays.fill(this.cellPairs, 0L);
+        }
+        final long[] table = this.cellPairs;
+        final int mask = table.length - 1;
+        final int shift = 64 - Integer.numberOfTrailingZeros(table.length);
+        if (this.aggregatedEdges.length < edges * 4) {
+            this.aggregatedEdges = new double[edges * 4];
+        }
+        final double[] lines = this.aggregatedEdges;
+        int count = 0;
+        for (int e = 0; e < edges; e++) {
+            final int s = source[e];
+            final int d = target[e];
+            final int outcode1 = this.outcodes[s];
+            final int outcode2 = this.outcodes[d];
+            if ((outcode1 & outcode2) != 0) {
+                continue;
+            }
+            if ((outcode1 | outcode2) == 0) {
+                final int cell1 = cell(this.sx[s], this.sy[s], columns);
+                final int cell2 = cell(this.sx[d], this.sy[d], columns);
+                if (cell1 == cell2) {
+                    continue;
+                }
+                // never 0, the larger cell is at least 1
+                final long key = cell1 < cell2 ? (long) cell1 << 32 | cell2 : (long) cell2 << 32 | cell1;
+                int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+                while (table[slot] != 0L && table[slot] != key) {
+                    slot = (slot + 1) & mask;
+                }
+                if (table[slot] == key) {
+                    continue;
+                }
+                table[slot] = key;
+            }
+            lines[count * 4] = this.sx[s];
+            lines[count * 4 + 1] = this.sy[s];
+            lines[count * 4 + 2] = this.sx[d];
+            lines[count * 4 + 3] = this.sy[d];
+            count++;
+        }
+        painter.drawAggregatedEdges(g, lines, count);
+    }
+
+    /**
+     * Paints the latest published snapshot into the painter's image on the calling thread, not limited in frequency.
+     */
+    public final void paintFrame() {
+        final PainterBase painter = this.panel.getPainter();
+        final LayoutSnapshot snapshot = this.layout.acquireSnapshot();
+        try {
+            synchronized (painter) {
+                g = painter.getGraphics();
+                painter.clear(g);
+                paint(snapshot);
+                painter.disposeGraphics();
+            }
+        } finally {
+            snapshot.release();
+        }
+    }
+
+    /**
+     * Draws the edges not entirely beside the screen, plain lines in order of their style unless detailed.
+     */
+    private final void paintEdges(final LayoutSnapshot snapshot, final PainterBase painter, final boolean detailed) {
+        final Graph graph = this.layout.getGraph();
+        final Edge[] edges = snapshot.getEdges();
+        final int[] source = snapshot.getSource();
+        final int[] target = snapshot.getTarget();
+        final int[] parallelIndex = snapshot.getParallelIndex();
+        final int[] parallelCount = snapshot.getParallelCount();
+        if (detailed) {
+            for (int e = 0; e < snapshot.edgeCount(); e++) {
+                final int s = source[e];
+                final int d = target[e];
+                if ((this.outcodes[s] & this.outcodes[d]) == 0) {
+                    painter.drawEdge(g, this.panel, graph, edges[e], screen(this.sp1, s), screen(this.sp2, d),
+                            parallelIndex[e], parallelCount[e]);
+                }
+            }
+        } else {
+            if (snapshot.getTopology() != this.orderedTopology || painter != this.orderedPainter) {
+                orderEdges(snapshot, painter);
+            }
+            for (int i = 0; i < snapshot.edgeCount(); i++) {
+                final int e = this.edgeOrder[i];
+                final int s = source[e];
+                final int d = target[e];
+                if ((this.outcodes[s] & this.outcodes[d]) == 0) {
+                    painter.drawEdgeLine(g, this.panel, edges[e], this.sx[s], this.sy[s], this.sx[d], this.sy[d]);
+                }
+            }
+            painter.flushEdgeLines(g);
+        }
+    }
+
+    /**
+     * Draws the nodes on screen, as label boxes or as dots. The selected and the nearest node are drawn with their
+     * label boxes either way, on top.
+     */
+    private final void paintNodes(final LayoutSnapshot snapshot, final PainterBase painter, final boolean labeled) {
+        final Node[] nodes = snapshot.getNodes();
+        final Node selectedNode = this.panel.getSelectedNode();
+        final Node nearestNode = this.panel.getNearestNode();
+        final int width = painter.getWidth();
+        int selected = -1;
+        int nearest = -1;
+        // dots are whole pixels, antialiasing only slows them down
+        final Object antialiasing = g.getRenderingHint(RenderingHints.KEY_ANTIALIASING);
+        if (!labeled) {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        }
+        for (int i = 0; i < snapshot.size(); i++) {
+            final Node node = nodes[i];
+            if (labeled) {
+                if (isVisible(node, i, width)) {
+                    painter.drawNode(g, this.panel, node, screen(this.sp1, i));
+                }
+            } else if (node == selectedNode) {
+                selected = i;
+            } else if (node == nearestNode) {
+                nearest = i;
+            } else if (this.outcodes[i] == 0) {
+                painter.drawDot(g, this.panel, node, this.sx[i], this.sy[i]);
+            }
+        }
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, antialiasing);
+        if (nearest != -1 && isVisible(nodes[nearest], nearest, width)) {
+            painter.drawNode(g, this.panel, nodes[nearest], screen(this.sp1, nearest));
+        }
+        if (selected != -1 && isVisible(nodes[selected], selected, width)) {
+            painter.drawNode(g, this.panel, nodes[selected], screen(this.sp1, selected));
+        }
+    }
+
+    /**
+     * Converts the snapshot positions to screen coordinates and classifies them against the screen plus margin.
+     * 
+     * @return the number of nodes within the screen plus margin
+     */
+    private final int project(final LayoutSnapshot snapshot, final double[] t, final int width, final int height) {
+        final int size = snapshot.size();
+        if (this.sx.length < size) {
+            this.sx = new double[snapshot.getX().length];
+            this.sy = new double[snapshot.getX().length];
+            this.outcodes = new int[snapshot.getX().length];
+        }
+        final double[] x = snapshot.getX();
+        final double[] y = snapshot.getY();
+        int visible = 0;
+        for (int i = 0; i < size; i++) {
+            final double px = x[i] * t[0] + t[2];
+            final double py = y[i] * t[1] + t[3];
+            int outcode = 0;
+            if (px < -MARGIN) {
+                outcode |= LEFT;
+            } else if (px > width + MARGIN) {
+                outcode |= RIGHT;
+            }
+            if (py < -MARGIN) {
+                outcode |= TOP;
+            } else if (py > height + MARGIN) {
+                outcode |= BOTTOM;
+            }
+            this.sx[i] = px;
+            this.sy[i] = py;
+            this.outcodes[i] = outcode;
+            if (outcode == 0) {
+                visible++;
+            }
+        }
+        return visible;
+    }
+
+    /**
+     * @return the vector, set to the screen position of the node of the given index
+     */
+    private final Vector screen(final Vector vector, final int i) {
+        vector.setX(this.sx[i]);
+        vector.setY(this.sy[i]);
+        return vector;
+    }
+
+    /**
+     * Schedules a frame unless one is waiting already.
+     */
+    private final void requestPaint() {
+        if (this.paintPending.compareAndSet(false, true)) {
+            PAINTER.execute(this.paintTask);
+        }
+    }
+
+    /**
+     * Paints a frame, or when the last one is too recent requests it again once the frame interval has passed, so the
+     * last frame requested is always painted.
+     */
+    private final void repaint() {
+        final long now = System.nanoTime();
+        final long wait = this.lastPaint + FRAME_INTERVAL - now;
+        if (wait > 0L) {
+            if (this.paintPending.compareAndSet(false, true)) {
+                GraphRenderer.SCHEDULER.schedule(this.delayedPaintTask, wait, TimeUnit.NANOSECONDS);
+            }
+        } else {
+            paintFrame();
+            this.panel.repaint();
+            this.lastPaint = now;
+        }
+    }
+}